@@ -0,0 +1,114 @@
+package frc.control;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import frc.gen.BIGData;
+import frc.gen.DoubleChannel;
+import frc.swerve.Swerve;
+import frc.util.Clock;
+
+/**
+ * Follows the trajectory named by the "auto_trajectory" config key. Every
+ * trajectory made by {@link TrajectoryGenerator} in
+ * /home/lvuser/deploy/trajectories is memory mapped when the mode is created,
+ * and auto_trajectory picks one by name (e.g. "forward" for forward.bin) when
+ * {@link #init()} is called, so the auto can be changed up to the start of
+ * the match. auto_trajectory can also name a text trajectory (a .traj file in
+ * /home/lvuser/deploy, or an absolute path), which is loaded and sampled when
+ * the mode is created.
+ * <p>
+ * Each loop only looks up the sample for the current time and drives towards
+ * it: the sample's velocity plus a proportional correction from the estimated
+ * pose. Trajectories are followed relative to where the robot is when
+ * {@link #init()} is called, with headings in the field frame.
+ * </p>
+ */
+class AutonomousControl extends Mode {
+    /** directory of the trajectories made by TrajectoryGenerator */
+    private static final File TRAJECTORY_DIRECTORY = new File("/home/lvuser/deploy/trajectories");
+
+    /** every trajectory that was loaded, by name */
+    private final Map<String, Trajectory> trajectories = new HashMap<>();
+    /** the trajectory being followed, or null if there isn't one */
+    private Trajectory trajectory;
+    /** proportional gains on the position error (1/sec) and heading error (1/sec) */
+    private final double translationKP;
+    private final double headingKP;
+    /** wheel radius, in meters, to convert chassis velocities to wheel speeds */
+    private final double wheelRadius;
+
+    private final DoubleChannel poseX = BIGData.doubleChannel("pose_x");
+    private final DoubleChannel poseY = BIGData.doubleChannel("pose_y");
+    private final DoubleChannel poseHeading = BIGData.doubleChannel("pose_heading");
+
+    /** when init() was called, in Clock.nanoTime() */
+    private long startTime;
+    /** added to the trajectory's positions to get field positions, in meters */
+    private double offsetX, offsetY;
+
+    AutonomousControl() {
+        translationKP = BIGData.getDouble("auto_translation_kP");
+        headingKP = BIGData.getDouble("auto_heading_kP");
+        wheelRadius = BIGData.getDouble("swerve_wheel_radius");
+        File[] files = TRAJECTORY_DIRECTORY.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName().substring(0, file.getName().length() - ".bin".length());
+                try {
+                    trajectories.put(name, Trajectory.map(file));
+                } catch (IOException e) {
+                    System.out.println("unable to load autonomous trajectory: " + e.getMessage());
+                }
+            }
+        }
+        String name = BIGData.getString("auto_trajectory");
+        if (name.endsWith(".traj")) {
+            File file = new File(name);
+            if (!file.isAbsolute()) {
+                file = new File("/home/lvuser/deploy", name);
+            }
+            try {
+                trajectories.put(name, Trajectory.load(file));
+            } catch (IOException e) {
+                System.out.println("unable to load autonomous trajectory: " + e.getMessage());
+            }
+        }
+        System.out.println("loaded autonomous trajectories " + trajectories.keySet());
+    }
+
+    @Override
+    public void init() {
+        startTime = Clock.nanoTime();
+        String name = BIGData.getString("auto_trajectory");
+        trajectory = trajectories.get(name);
+        if (trajectory == null) {
+            System.out.println("no autonomous trajectory named \"" + name + "\", not moving");
+        } else {
+            offsetX = poseX.get() - trajectory.getX(0);
+            offsetY = poseY.get() - trajectory.getY(0);
+        }
+    }
+
+    @Override
+    public boolean loop() {
+        long now = Clock.nanoTime();
+        if (trajectory == null) {
+            BIGData.requestDrive(0, 0, 0, now);
+            return false;
+        }
+        int i = trajectory.indexAt((now - startTime) / 1e9);
+        double errorX = trajectory.getX(i) + offsetX - poseX.get();
+        double errorY = trajectory.getY(i) + offsetY - poseY.get();
+        double errorHeading = Trajectory.angleDifference(trajectory.getHeading(i), poseHeading.get());
+        double vx = trajectory.getVX(i) + translationKP * errorX;
+        double vy = trajectory.getVY(i) + translationKP * errorY;
+        double omega = trajectory.getOmega(i) + headingKP * errorHeading;
+
+        // swerve takes wheel speeds, see Swerve.ROTATE_SCALE
+        BIGData.requestDrive(vx / wheelRadius, vy / wheelRadius, omega / (Swerve.ROTATE_SCALE * wheelRadius), now);
+        return i < trajectory.length() - 1;
+    }
+}
@@ -4,11 +4,12 @@ import edu.wpi.first.wpilibj.GenericHID.Hand;
 import frc.control.input.Input;
 import frc.control.input.JoystickProfile;
 import frc.gen.BIGData;
+import frc.util.Clock;
 
 class DriverControl extends Mode {
     @Override
     public boolean loop() {
-        JoystickProfile.updateProfilingPoints();
+        JoystickProfile.refresh();
         driveSwerve();
         return true;
     }
@@ -19,6 +20,7 @@ class DriverControl extends Mode {
             BIGData.putZeroGyroRequest(true);
         }
 
+        long sampled = Clock.nanoTime();
         double x = Input.SWERVE_XBOX.getX(Hand.kLeft);
         double y = -Input.SWERVE_XBOX.getY(Hand.kLeft); // negativize y so that up is forward
         x = JoystickProfile.applyProfile(x);
@@ -29,6 +31,6 @@ class DriverControl extends Mode {
         double rTrigger = Input.SWERVE_XBOX.getTriggerAxis(Hand.kRight);
         double rotate = JoystickProfile.applyProfile(-(Math.abs(rTrigger) - Math.abs(lTrigger)));
 
-        BIGData.requestDrive(x, y, rotate);
+        BIGData.requestDrive(x, y, rotate, sampled);
     }
 }
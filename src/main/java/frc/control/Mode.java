@@ -2,12 +2,19 @@ package frc.control;
 
 public abstract class Mode {
     private static DriverControl driverControl;
+    private static AutonomousControl autonomousControl;
     private static Mode[] modes;
 
     public static void initModes() {
         driverControl = new DriverControl();
-        modes = new Mode[1];
+        autonomousControl = new AutonomousControl();
+        modes = new Mode[2];
         modes[0] = driverControl;
+        modes[1] = autonomousControl;
+    }
+
+    /** called when the robot switches to this mode, before the first loop */
+    public void init() {
     }
 
     public abstract boolean loop();
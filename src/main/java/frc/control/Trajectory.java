@@ -0,0 +1,300 @@
+package frc.control;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A holonomic path for the robot to follow, sampled at a fixed period so
+ * following it is an array lookup. Each sample holds the pose and velocity of
+ * the robot in the field frame (x right, y forward, headings in radians
+ * counterclockwise), stored as {@link #FIELDS} doubles in a row.
+ * <p>
+ * Trajectories are usually made off the robot by {@link TrajectoryGenerator}
+ * and saved in a binary file, which is memory mapped by {@link #map(File)} so
+ * loading one doesn't read or parse anything. Format, little endian: int
+ * magic "GRTJ", int version, int sample count, int {@link #FIELDS}, double
+ * sample period (seconds), long hash of what the trajectory was generated
+ * from, then the samples: x, y, heading, vx, vy, omega.
+ * </p>
+ * <p>
+ * Trajectories can also be written by hand in a text file of waypoints, one
+ * per line: time (seconds), x and y (meters) and heading (degrees
+ * counterclockwise), separated by commas or spaces. Lines starting with '#'
+ * are comments. Times must increase. Each coordinate is interpolated with a
+ * cubic Hermite spline through the waypoints (Catmull-Rom tangents, stopped at
+ * the first and last waypoint), and the spline is only evaluated while
+ * loading. Nothing checks that the robot can drive these, so they are only
+ * for testing.
+ * </p>
+ */
+class Trajectory {
+    /** seconds between samples */
+    static final double SAMPLE_PERIOD = 0.005;
+    /** doubles in each sample */
+    static final int FIELDS = 6;
+    private static final int X = 0, Y = 1, HEADING = 2, VX = 3, VY = 4, OMEGA = 5;
+
+    private static final int MAGIC = 0x4752544A; // "GRTJ"
+    private static final int VERSION = 1;
+    /** bytes before the samples, a multiple of 8 so the samples are aligned */
+    private static final int HEADER_SIZE = 32;
+
+    /** the samples, FIELDS doubles each */
+    private final DoubleBuffer samples;
+    private final int length;
+    private final double period;
+
+    private Trajectory(DoubleBuffer samples, double period) {
+        this.samples = samples;
+        this.length = samples.capacity() / FIELDS;
+        this.period = period;
+    }
+
+    /**
+     * @param samples FIELDS doubles for each sample, in the order x, y,
+     *                heading, vx, vy, omega
+     * @param period  seconds between samples
+     */
+    static Trajectory of(double[] samples, double period) {
+        if (samples.length == 0 || samples.length % FIELDS != 0) {
+            throw new IllegalArgumentException("a trajectory needs a whole number of samples");
+        }
+        return new Trajectory(DoubleBuffer.wrap(samples), period);
+    }
+
+    /** memory map a trajectory written by {@link #write(Path, long)} */
+    static Trajectory map(File file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a trajectory");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a trajectory");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException(file + " is trajectory version " + data.getInt(4) + ", expected " + VERSION);
+        }
+        int length = data.getInt(8);
+        if (data.getInt(12) != FIELDS || length <= 0
+                || data.capacity() != HEADER_SIZE + (long) length * FIELDS * Double.BYTES) {
+            throw new IOException(file + " is the wrong size for its header");
+        }
+        double period = data.getDouble(16);
+        data.position(HEADER_SIZE);
+        return new Trajectory(data.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer(), period);
+    }
+
+    /**
+     * get the source hash of the trajectory file, or 0 if it isn't a readable
+     * trajectory of this version
+     */
+    static long readSourceHash(Path file) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return 0;
+        }
+        return header.getLong(24);
+    }
+
+    /**
+     * save the trajectory for {@link #map(File)}
+     * @param sourceHash hash of what the trajectory was made from, to tell if
+     *                   it needs to be made again
+     */
+    void write(Path file, long sourceHash) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + length * FIELDS * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(MAGIC).putInt(VERSION).putInt(length).putInt(FIELDS).putDouble(period).putLong(sourceHash);
+        for (int i = 0; i < length * FIELDS; i++) {
+            data.putDouble(samples.get(i));
+        }
+        data.flip();
+        // write to a temp file and rename it, so a trajectory is never half written
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** read and sample a text file of waypoints */
+    static Trajectory load(File file) throws IOException {
+        List<double[]> waypoints = readWaypoints(file, "time, x, y, heading");
+        try {
+            return sample(waypoints.toArray(new double[0][]));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * read a text file of waypoints, whose last field is a heading in degrees
+     * @param fields the names of the fields of each waypoint
+     * @return the waypoints, with the heading converted to radians
+     */
+    static List<double[]> readWaypoints(File file, String fields) throws IOException {
+        int count = fields.split(",").length;
+        List<double[]> waypoints = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split("[,\\s]+");
+                if (values.length != count) {
+                    throw new IOException(file + ":" + lineNumber + ": expected " + fields);
+                }
+                double[] waypoint = new double[count];
+                try {
+                    for (int i = 0; i < count; i++) {
+                        waypoint[i] = Double.parseDouble(values[i]);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+                }
+                waypoint[count - 1] = Math.toRadians(waypoint[count - 1]);
+                waypoints.add(waypoint);
+            }
+        }
+        return waypoints;
+    }
+
+    /**
+     * sample splines through the waypoints
+     * @param waypoints time, x, y and heading (radians) of each waypoint
+     */
+    static Trajectory sample(double[][] waypoints) {
+        int n = waypoints.length;
+        if (n < 2) {
+            throw new IllegalArgumentException("a trajectory needs at least 2 waypoints");
+        }
+        double[] t = new double[n];
+        double[][] values = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            t[i] = waypoints[i][0];
+            if (i > 0 && !(t[i] > t[i - 1])) {
+                throw new IllegalArgumentException("waypoint times must increase");
+            }
+            values[0][i] = waypoints[i][1];
+            values[1][i] = waypoints[i][2];
+            values[2][i] = waypoints[i][3];
+            if (i > 0) {
+                // turn the short way between waypoints
+                values[2][i] = values[2][i - 1] + angleDifference(values[2][i], values[2][i - 1]);
+            }
+        }
+
+        int length = (int) Math.ceil((t[n - 1] - t[0]) / SAMPLE_PERIOD) + 1;
+        double[] samples = new double[length * FIELDS];
+        for (int c = 0; c < 3; c++) {
+            double[] p = values[c];
+            // Catmull-Rom tangents, zero at the ends so the robot starts and stops
+            double[] m = new double[n];
+            for (int i = 1; i < n - 1; i++) {
+                m[i] = (p[i + 1] - p[i - 1]) / (t[i + 1] - t[i - 1]);
+            }
+            int segment = 0;
+            for (int s = 0; s < length; s++) {
+                double time = Math.min(t[0] + s * SAMPLE_PERIOD, t[n - 1]);
+                while (segment < n - 2 && time > t[segment + 1]) {
+                    segment++;
+                }
+                double h = t[segment + 1] - t[segment];
+                double u = (time - t[segment]) / h;
+                double u2 = u * u;
+                double u3 = u2 * u;
+                double p0 = p[segment], p1 = p[segment + 1];
+                double m0 = m[segment] * h, m1 = m[segment + 1] * h;
+                // x, y and heading are followed by their velocities
+                samples[s * FIELDS + c] = (2 * u3 - 3 * u2 + 1) * p0 + (u3 - 2 * u2 + u) * m0
+                        + (-2 * u3 + 3 * u2) * p1 + (u3 - u2) * m1;
+                samples[s * FIELDS + c + 3] = ((6 * u2 - 6 * u) * p0 + (3 * u2 - 4 * u + 1) * m0
+                        + (-6 * u2 + 6 * u) * p1 + (3 * u2 - 2 * u) * m1) / h;
+            }
+        }
+        return of(samples, SAMPLE_PERIOD);
+    }
+
+    /** get a - b, between -pi and pi */
+    static double angleDifference(double a, double b) {
+        return Math.IEEEremainder(a - b, 2 * Math.PI);
+    }
+
+    /** get the number of samples */
+    int length() {
+        return length;
+    }
+
+    /** get the time from the start to the last sample, in seconds */
+    double getDuration() {
+        return (length - 1) * period;
+    }
+
+    /**
+     * get the index of the sample nearest to the time, clamped to the samples
+     * @param time the time since the start of the trajectory, in seconds
+     */
+    int indexAt(double time) {
+        int i = (int) (time / period + 0.5);
+        return i < 0 ? 0 : Math.min(i, length - 1);
+    }
+
+    /** get the x position at a sample, in meters */
+    double getX(int i) {
+        return samples.get(i * FIELDS + X);
+    }
+
+    /** get the y position at a sample, in meters */
+    double getY(int i) {
+        return samples.get(i * FIELDS + Y);
+    }
+
+    /** get the heading at a sample, in radians counterclockwise */
+    double getHeading(int i) {
+        return samples.get(i * FIELDS + HEADING);
+    }
+
+    /** get the x velocity at a sample, in meters/sec */
+    double getVX(int i) {
+        return samples.get(i * FIELDS + VX);
+    }
+
+    /** get the y velocity at a sample, in meters/sec */
+    double getVY(int i) {
+        return samples.get(i * FIELDS + VY);
+    }
+
+    /** get the angular velocity at a sample, in radians/sec counterclockwise */
+    double getOmega(int i) {
+        return samples.get(i * FIELDS + OMEGA);
+    }
+}
@@ -0,0 +1,321 @@
+package frc.control;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import frc.gen.BIGData;
+
+/**
+ * Makes trajectories the robot can drive, off the robot. A path is a text
+ * file of waypoints, one per line: x and y (meters) and heading (degrees
+ * counterclockwise), in the format {@link Trajectory} reads. The generator
+ * fits a spline through the waypoints, then finds the fastest speed along it
+ * that keeps every module within its motors' limits and the chassis within
+ * auto_max_acceleration, and samples it into a {@link Trajectory}.
+ * <p>
+ * A differential module's two motors share the work of steering and spinning
+ * the wheel, so each motor turns at |steer| + |spin| (see
+ * {@link frc.swerve.Module#getSpinScale()}). Both terms are proportional to
+ * the speed along the path, so the limit at each point of the path is
+ * auto_motor_speed_fraction * swerve_max_motor_speed divided by the motor
+ * speed that moving at 1 m/s there would take. The rest of the motor speed is
+ * left for the feedback that corrects errors while following.
+ * </p>
+ * Usage: TrajectoryGenerator &lt;config file&gt; &lt;path directory&gt;
+ * &lt;output directory&gt;. Each name.path becomes name.bin, unless name.bin
+ * was already made from the same path and config.
+ */
+public class TrajectoryGenerator {
+    /** distance between the points the spline is evaluated at, in meters of path */
+    private static final double STEP = 0.002;
+    /** module speeds (per m/s of path speed) below this don't need the module to steer */
+    private static final double MIN_MODULE_SPEED = 1e-3;
+
+    private final double[] moduleX;
+    private final double[] moduleY;
+    private final double wheelRadius;
+    private final double steeringGearRatio;
+    private final double driveGearRatio;
+    /** the fastest any motor may turn, in radians/sec */
+    private final double motorSpeedLimit;
+    /** in meters/sec^2 of path */
+    private final double maxAcceleration;
+    /**
+     * meters of path for each radian the heading changes, so turning in place
+     * takes time. This is the distance to the farthest module, which is how
+     * far it moves
+     */
+    private final double turnRadius;
+
+    /**
+     * @param moduleX         the x position of each module relative to the
+     *                        center of the robot, in meters
+     * @param moduleY         the y position of each module, in meters
+     * @param motorSpeedLimit the fastest any motor may turn, in radians/sec
+     * @param maxAcceleration the greatest acceleration along the path, in
+     *                        meters/sec^2
+     */
+    TrajectoryGenerator(double[] moduleX, double[] moduleY, double wheelRadius, double steeringGearRatio,
+            double driveGearRatio, double motorSpeedLimit, double maxAcceleration) {
+        this.moduleX = moduleX.clone();
+        this.moduleY = moduleY.clone();
+        this.wheelRadius = wheelRadius;
+        this.steeringGearRatio = steeringGearRatio;
+        this.driveGearRatio = driveGearRatio;
+        this.motorSpeedLimit = motorSpeedLimit;
+        this.maxAcceleration = maxAcceleration;
+        double radius = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            radius = Math.max(radius, Math.hypot(moduleX[i], moduleY[i]));
+        }
+        turnRadius = radius;
+    }
+
+    /** create a generator for the robot in the config loaded into BIGData */
+    static TrajectoryGenerator fromBIGData() {
+        String[] names = BIGData.getString("swerve_modules").split(",");
+        double[] x = new double[names.length];
+        double[] y = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            x[i] = BIGData.getDouble(names[i].trim() + "_x");
+            y[i] = BIGData.getDouble(names[i].trim() + "_y");
+        }
+        return new TrajectoryGenerator(x, y, BIGData.getDouble("swerve_wheel_radius"),
+                BIGData.getDouble("swerve_steering_gear_ratio"), BIGData.getDouble("swerve_drive_gear_ratio"),
+                BIGData.getDouble("auto_motor_speed_fraction") * BIGData.getDouble("swerve_max_motor_speed"),
+                BIGData.getDouble("auto_max_acceleration"));
+    }
+
+    /**
+     * make a trajectory that starts and ends stopped
+     * @param waypoints x, y and heading (radians) of each waypoint
+     */
+    Trajectory generate(double[][] waypoints) {
+        int n = waypoints.length;
+        if (n < 2) {
+            throw new IllegalArgumentException("a path needs at least 2 waypoints");
+        }
+        // spline parameter of each waypoint: the distance from the last waypoint,
+        // counting heading changes as the distance the farthest module turns
+        double[] knots = new double[n];
+        double[][] values = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            values[0][i] = waypoints[i][0];
+            values[1][i] = waypoints[i][1];
+            values[2][i] = waypoints[i][2];
+            if (i > 0) {
+                values[2][i] = values[2][i - 1] + Trajectory.angleDifference(values[2][i], values[2][i - 1]);
+                double length = Math.hypot(values[0][i] - values[0][i - 1], values[1][i] - values[1][i - 1])
+                        + turnRadius * Math.abs(values[2][i] - values[2][i - 1]);
+                if (!(length > 0)) {
+                    throw new IllegalArgumentException("waypoints " + i + " and " + (i + 1) + " are the same");
+                }
+                knots[i] = knots[i - 1] + length;
+            }
+        }
+        double[][] tangents = new double[3][];
+        for (int c = 0; c < 3; c++) {
+            tangents[c] = tangents(knots, values[c]);
+        }
+
+        // evaluate the spline at evenly spaced points, with the derivatives of
+        // x, y and heading with respect to the spline parameter
+        int points = (int) Math.ceil(knots[n - 1] / STEP) + 1;
+        double[][] position = new double[3][points];
+        double[][] derivative = new double[3][points];
+        int segment = 0;
+        for (int j = 0; j < points; j++) {
+            double u = Math.min(j * STEP, knots[n - 1]);
+            while (segment < n - 2 && u > knots[segment + 1]) {
+                segment++;
+            }
+            for (int c = 0; c < 3; c++) {
+                hermite(knots, values[c], tangents[c], segment, u, position[c], derivative[c], j);
+            }
+        }
+
+        // distance along the path, the field frame x, y and heading velocities at
+        // 1 m/s along the path, and the greatest speed at each point
+        double[] distance = new double[points];
+        double[][] direction = new double[3][points];
+        double[] speed = new double[points];
+        double[] lastAzimuth = new double[moduleX.length];
+        for (int j = 0; j < points; j++) {
+            if (j > 0) {
+                distance[j] = distance[j - 1]
+                        + Math.hypot(position[0][j] - position[0][j - 1], position[1][j] - position[1][j - 1])
+                        + turnRadius * Math.abs(position[2][j] - position[2][j - 1]);
+            }
+            double length = Math.hypot(derivative[0][j], derivative[1][j]) + turnRadius * Math.abs(derivative[2][j]);
+            if (!(length > 0)) {
+                // the spline stops here, so the robot has to as well
+                continue;
+            }
+            for (int c = 0; c < 3; c++) {
+                direction[c][j] = derivative[c][j] / length;
+            }
+            // in the robot frame
+            double cos = Math.cos(position[2][j]);
+            double sin = Math.sin(position[2][j]);
+            double vx = direction[0][j] * cos + direction[1][j] * sin;
+            double vy = -direction[0][j] * sin + direction[1][j] * cos;
+            double omega = direction[2][j];
+            double step = j > 0 ? distance[j] - distance[j - 1] : 0;
+            double motorSpeed = 0;
+            for (int i = 0; i < moduleX.length; i++) {
+                double moduleVX = vx - omega * moduleY[i];
+                double moduleVY = vy + omega * moduleX[i];
+                double moduleSpeed = Math.hypot(moduleVX, moduleVY);
+                double spin = driveGearRatio * moduleSpeed / wheelRadius;
+                double steer = 0;
+                if (moduleSpeed > MIN_MODULE_SPEED) {
+                    double azimuth = Math.atan2(moduleVY, moduleVX);
+                    if (step > 0) {
+                        // modules reverse instead of turning more than a quarter rotation
+                        steer = steeringGearRatio * Math.abs(Math.IEEEremainder(azimuth - lastAzimuth[i], Math.PI))
+                                / step;
+                    }
+                    lastAzimuth[i] = azimuth;
+                }
+                motorSpeed = Math.max(motorSpeed, steer + spin);
+            }
+            speed[j] = motorSpeedLimit / motorSpeed;
+        }
+
+        // start and end stopped, and accelerate no faster than the limit
+        speed[0] = 0;
+        speed[points - 1] = 0;
+        for (int j = 1; j < points; j++) {
+            double reachable = Math.sqrt(speed[j - 1] * speed[j - 1] + 2 * maxAcceleration * (distance[j] - distance[j - 1]));
+            speed[j] = Math.min(speed[j], reachable);
+        }
+        for (int j = points - 2; j >= 0; j--) {
+            double reachable = Math.sqrt(speed[j + 1] * speed[j + 1] + 2 * maxAcceleration * (distance[j + 1] - distance[j]));
+            speed[j] = Math.min(speed[j], reachable);
+        }
+
+        // time at each point, assuming constant acceleration between points
+        double[] time = new double[points];
+        for (int j = 1; j < points; j++) {
+            double average = (speed[j - 1] + speed[j]) / 2;
+            double step = distance[j] - distance[j - 1];
+            time[j] = time[j - 1] + (step > 0 ? step / average : 0);
+        }
+
+        // sample at fixed times, interpolating between points
+        int length = (int) Math.ceil(time[points - 1] / Trajectory.SAMPLE_PERIOD) + 1;
+        double[] samples = new double[length * Trajectory.FIELDS];
+        int j = 0;
+        for (int s = 0; s < length; s++) {
+            double t = Math.min(s * Trajectory.SAMPLE_PERIOD, time[points - 1]);
+            while (j < points - 2 && t > time[j + 1]) {
+                j++;
+            }
+            double span = time[j + 1] - time[j];
+            double f = span > 0 ? (t - time[j]) / span : 0;
+            double v = speed[j] + f * (speed[j + 1] - speed[j]);
+            for (int c = 0; c < 3; c++) {
+                // x, y and heading are followed by their velocities
+                samples[s * Trajectory.FIELDS + c] = position[c][j] + f * (position[c][j + 1] - position[c][j]);
+                samples[s * Trajectory.FIELDS + c + 3] = v
+                        * (direction[c][j] + f * (direction[c][j + 1] - direction[c][j]));
+            }
+        }
+        return Trajectory.of(samples, Trajectory.SAMPLE_PERIOD);
+    }
+
+    /**
+     * Catmull-Rom tangents of the values with respect to the knots, using the
+     * direction to the neighboring waypoint at the ends
+     */
+    private static double[] tangents(double[] knots, double[] values) {
+        int n = knots.length;
+        double[] m = new double[n];
+        m[0] = (values[1] - values[0]) / (knots[1] - knots[0]);
+        m[n - 1] = (values[n - 1] - values[n - 2]) / (knots[n - 1] - knots[n - 2]);
+        for (int i = 1; i < n - 1; i++) {
+            m[i] = (values[i + 1] - values[i - 1]) / (knots[i + 1] - knots[i - 1]);
+        }
+        return m;
+    }
+
+    /** evaluate a cubic Hermite segment and its derivative at u, into index j of position and derivative */
+    private static void hermite(double[] knots, double[] values, double[] tangents, int segment, double u,
+            double[] position, double[] derivative, int j) {
+        double h = knots[segment + 1] - knots[segment];
+        double t = (u - knots[segment]) / h;
+        double t2 = t * t;
+        double t3 = t2 * t;
+        double p0 = values[segment], p1 = values[segment + 1];
+        double m0 = tangents[segment] * h, m1 = tangents[segment + 1] * h;
+        position[j] = (2 * t3 - 3 * t2 + 1) * p0 + (t3 - 2 * t2 + t) * m0 + (-2 * t3 + 3 * t2) * p1 + (t3 - t2) * m1;
+        derivative[j] = ((6 * t2 - 6 * t) * p0 + (3 * t2 - 4 * t + 1) * m0 + (-6 * t2 + 6 * t) * p1
+                + (3 * t2 - 2 * t) * m1) / h;
+    }
+
+    /** describes everything about the robot that changes the trajectories */
+    private String describe() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < moduleX.length; i++) {
+            s.append(moduleX[i]).append(',').append(moduleY[i]).append(';');
+        }
+        s.append(wheelRadius).append(';').append(steeringGearRatio).append(';').append(driveGearRatio).append(';')
+                .append(motorSpeedLimit).append(';').append(maxAcceleration).append(';').append(STEP).append(';')
+                .append(Trajectory.SAMPLE_PERIOD);
+        return s.toString();
+    }
+
+    /** hash of the path file and the robot, to tell if a trajectory is up to date */
+    private long hash(byte[] path) {
+        CRC32 crc = new CRC32();
+        crc.update(path);
+        long pathHash = crc.getValue();
+        crc.reset();
+        crc.update(describe().getBytes(StandardCharsets.UTF_8));
+        return (pathHash << 32) | crc.getValue();
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length != 3) {
+            System.out.println("usage: TrajectoryGenerator <config file> <path directory> <output directory>");
+            return;
+        }
+        BIGData.start(new File(args[0]));
+        TrajectoryGenerator generator = fromBIGData();
+        File[] paths = new File(args[1]).listFiles((dir, name) -> name.endsWith(".path"));
+        if (paths == null) {
+            System.out.println(args[1] + " is not a directory");
+            return;
+        }
+        File output = new File(args[2]);
+        output.mkdirs();
+        int failed = 0;
+        for (File path : paths) {
+            String name = path.getName().substring(0, path.getName().length() - ".path".length());
+            Path out = new File(output, name + ".bin").toPath();
+            try {
+                long hash = generator.hash(Files.readAllBytes(path.toPath()));
+                if (Trajectory.readSourceHash(out) == hash) {
+                    System.out.println(name + " is up to date");
+                    continue;
+                }
+                List<double[]> waypoints = Trajectory.readWaypoints(path, "x, y, heading");
+                Trajectory trajectory = generator.generate(waypoints.toArray(new double[0][]));
+                trajectory.write(out, hash);
+                System.out.printf("%s: %.2f seconds%n", name, trajectory.getDuration());
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("unable to make " + name + ": " + e.getMessage());
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
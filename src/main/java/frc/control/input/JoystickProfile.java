@@ -7,39 +7,94 @@ import frc.util.PiecewiseLinearFunction;
 public class JoystickProfile {
 	private static final double DEFAULT_DEADBAND = 0.1;
 
-	private static PiecewiseLinearFunction inputMapper;
+	/** the current profile, replaced as a whole when the config changes */
+	private static volatile Profile profile;
 
 	/** Default array of [original, new] mappings used to define the joystick profile
 	 * if the user specified array is invalid */
 	private static final double[] DEFAULT_X_VALS = {0, 0.35, 0.7, 1.0};
 	private static final double[] DEFAULT_Y_VALS = {0, 0.1, 0.4, 1.0};
 
+	/** a joystick profile and the config strings it was built from */
+	private static class Profile {
+		final String xVals;
+		final String yVals;
+		final PiecewiseLinearFunction mapper;
+
+		Profile(String xVals, String yVals, PiecewiseLinearFunction mapper) {
+			this.xVals = xVals;
+			this.yVals = yVals;
+			this.mapper = mapper;
+		}
+	}
+
 	private JoystickProfile() {}
 
 	public static void init() {
 		updateProfilingPoints();
 	}
 
-	/** parse profiling points from string loaded from config file */
-	public static void updateProfilingPoints() {
-		// x and y values of the joystick profile piecewise mapping function
-		String[] stringXVals = BIGData.getJoystickProfileXVals().split(",");
-		String[] stringYVals = BIGData.getJoystickProfileYVals().split(",");
-		int arrayLen = Math.min(stringXVals.length, stringYVals.length);
-		// parse double values from strings
-		double[] xVals = new double[arrayLen];
-		double[] yVals = new double[arrayLen];
+	/**
+	 * Rebuild the profile if "joystick_x_vals" or "joystick_y_vals" has been set
+	 * since it was built. This is cheap enough to call every loop: it doesn't
+	 * parse or allocate unless the values were changed.
+	 */
+	public static void refresh() {
+		Profile current = profile;
+		// BIGData keeps the string it was given, so a new value is a new object
+		if (current == null || current.xVals != BIGData.getJoystickProfileXVals()
+				|| current.yVals != BIGData.getJoystickProfileYVals()) {
+			updateProfilingPoints();
+		}
+	}
+
+	/**
+	 * parse profiling points from string loaded from config file. The points
+	 * (0, 0) and (1, 1) are added if the config doesn't include them
+	 */
+	public static synchronized void updateProfilingPoints() {
+		String xString = BIGData.getJoystickProfileXVals();
+		String yString = BIGData.getJoystickProfileYVals();
+		PiecewiseLinearFunction mapper;
 		try {
-			for (int i = 0; i < Math.min(stringXVals.length, stringYVals.length); i++) {
-				xVals[i] = Double.parseDouble(stringXVals[i]);
-				yVals[i] = Double.parseDouble(stringYVals[i]);
+			double[] xVals = parse(xString);
+			double[] yVals = parse(yString);
+			if (xVals.length != yVals.length) {
+				throw new IllegalArgumentException("different number of x and y values");
 			}
-		} catch (NumberFormatException e) {
+			// add the points (0, 0) and (1, 1) if they're missing
+			boolean start = xVals.length == 0 || xVals[0] != 0;
+			boolean end = xVals.length == 0 || xVals[xVals.length - 1] != 1;
+			mapper = new PiecewiseLinearFunction(withEnds(xVals, start, end), withEnds(yVals, start, end));
+		} catch (IllegalArgumentException e) {
+			// bad numbers, different numbers of x and y values, or x values out of order
 			System.err.println("Unable to load joystick profile values, loading default instead.");
-			xVals = DEFAULT_X_VALS;
-			yVals = DEFAULT_Y_VALS;
+			mapper = new PiecewiseLinearFunction(DEFAULT_X_VALS, DEFAULT_Y_VALS);
+		}
+		profile = new Profile(xString, yString, mapper);
+	}
+
+	/** parse a comma separated list of numbers */
+	private static double[] parse(String list) {
+		if (list.trim().isEmpty()) {
+			return new double[0];
+		}
+		String[] strings = list.split(",");
+		double[] vals = new double[strings.length];
+		for (int i = 0; i < strings.length; i++) {
+			vals[i] = Double.parseDouble(strings[i]);
+		}
+		return vals;
+	}
+
+	/** add 0 to the start and 1 to the end of vals */
+	private static double[] withEnds(double[] vals, boolean start, boolean end) {
+		double[] result = new double[vals.length + (start ? 1 : 0) + (end ? 1 : 0)];
+		System.arraycopy(vals, 0, result, start ? 1 : 0, vals.length);
+		if (end) {
+			result[result.length - 1] = 1;
 		}
-		inputMapper = new PiecewiseLinearFunction(xVals, yVals);
+		return result;
 	}
 
 	public static double applyProfile(double x) {
@@ -52,7 +107,7 @@ public class JoystickProfile {
 		// transform values to be between 0 - 1
 		ans = GRTUtil.transformation(0, 1 - DEFAULT_DEADBAND, 0, 1, ans);
 		// apply profiling
-		ans = inputMapper.apply(ans);
+		ans = profile.mapper.apply(ans);
 		return ans * signum;
 	}
 
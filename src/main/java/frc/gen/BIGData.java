@@ -1,9 +1,20 @@
 package frc.gen;
 
-import java.util.HashMap;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import frc.util.Clock;
 import java.util.TreeMap;
 
+/**
+ * Central store for config and robot state. Values can be accessed by string
+ * key, or through typed channels (see {@link #doubleChannel(String)}) which
+ * keep the value in a primitive slot and are much cheaper to use every loop.
+ * BIGData is shared between the robot, swerve and module threads, so every
+ * method is safe to call from any thread.
+ */
 public class BIGData {
 
 	private static Map<String, String> map;
@@ -13,28 +24,112 @@ public class BIGData {
 	// RPM map of <distance (inches), RPM> for when the hood is down
 	public static TreeMap<Integer, Integer> downRPMMap;
 
+	// channels for values that are read or written every loop
+	private static final DoubleChannel requestedVX = doubleChannel("requested_vx");
+	private static final DoubleChannel requestedVY = doubleChannel("requested_vy");
+	private static final DoubleChannel requestedW = doubleChannel("requested_w");
+	private static final LongChannel requestedDriveTime = longChannel("requested_drive_time");
+	private static final LongChannel requestedDriveSeq = longChannel("requested_drive_seq");
+	private static final LongChannel requestedDriveInputTime = longChannel("requested_drive_input_time");
+	/** lock that keeps the fields of the drive command consistent */
+	private static final SeqLock requestedDriveLock = new SeqLock();
+	private static final DoubleChannel gyroAngle = doubleChannel("gyro_ang");
+	private static final BooleanChannel zeroGyro = booleanChannel("zero_gyro");
+	private static final BooleanChannel zeroSwerve = booleanChannel("zero_swerve");
+	/** run after every drive request, e.g. to wake the swerve loop */
+	private static volatile Runnable driveRequestListener;
+	/** zero request channels for individual swerve modules, indexed by wheel number */
+	private static volatile BooleanChannel[] zeroModule = new BooleanChannel[0];
+
+	/**
+	 * Load the config files and check them against {@link ConfigSchema}, then
+	 * start watching them for changes (see {@link #addChangeListener}).
+	 * @throws IllegalStateException listing every invalid config value
+	 */
 	public static void start() {
-		map = new HashMap<String, String>();
+		map = new ConcurrentHashMap<String, String>();
 		Config.start(map);
+		ConfigSchema schema = ConfigSchema.robot(map);
+		schema.apply(map);
+		ChannelStore.adopt(map);
+		ConfigWatcher.start(schema);
+	}
+
+	/**
+	 * Initialize BIGData from a single config file, with no local config file.
+	 * Used when running robot code off the robot (e.g. in simulation)
+	 */
+	public static void start(File configFile) throws FileNotFoundException {
+		map = new ConcurrentHashMap<String, String>();
+		Config.start(map, configFile);
+		ConfigSchema.robot(map).apply(map);
+		ChannelStore.adopt(map);
+	}
+
+	/**
+	 * Get the double channel for the key, creating it if needed. Resolve channels
+	 * once (e.g. in a constructor) and keep the handle.
+	 */
+	public static DoubleChannel doubleChannel(String key) {
+		return ChannelStore.doubleChannel(key);
+	}
+
+	/**
+	 * Get the long channel for the key, creating it if needed. Resolve channels
+	 * once (e.g. in a constructor) and keep the handle.
+	 */
+	public static LongChannel longChannel(String key) {
+		return ChannelStore.longChannel(key);
+	}
+
+	/**
+	 * Get the boolean channel for the key, creating it if needed. Resolve
+	 * channels once (e.g. in a constructor) and keep the handle.
+	 */
+	public static BooleanChannel booleanChannel(String key) {
+		return ChannelStore.booleanChannel(key);
+	}
+
+	/**
+	 * Run the listener whenever any of the keys is changed while the robot is
+	 * running, from the config files or the "config_override" NetworkTables
+	 * table. The listener is run after all the values from the same change have
+	 * been put into BIGData, on a background thread, so it should hand the new
+	 * values to the control loops rather than change them directly.
+	 */
+	public static void addChangeListener(Runnable listener, String... keys) {
+		ConfigWatcher.addListener(listener, keys);
+	}
+
+	/** get the value for the key as a string, or null if there isn't one. Unlike getString, missing keys aren't added */
+	static String peek(String key) {
+		Channel c = ChannelStore.lookup(key);
+		return c != null ? c.getAsString() : map.get(key);
 	}
 
+	/**
+	 * Put a default value into the map if the key isn't there. Keys in
+	 * {@link ConfigSchema} always exist, so this only fills in keys the schema
+	 * doesn't know about.
+	 */
 	private static void existenceCheck(String key, String type) {
 		if (!map.containsKey(key)) {
+			System.out.println("config key " + key + " is not set, using the default " + type);
 			switch (type) {
 			case "boolean":
-				put(key, false);
+				map.putIfAbsent(key, "false");
 				break;
 			case "double":
-				put(key, 0.0);
+				map.putIfAbsent(key, "0.0");
 				break;
 			case "int":
-				put(key, 0);
+				map.putIfAbsent(key, "0");
 				break;
 			case "String":
-				put(key, "");
+				map.putIfAbsent(key, "");
 				break;
 			case "long":
-				put(key, 0);
+				map.putIfAbsent(key, "0");
 				break;
 			}
 		}
@@ -46,6 +141,12 @@ public class BIGData {
 	 * @return The corresponding boolean value, or false if the key was invalid
 	 */
 	public static boolean getBoolean(String key) {
+		Channel c = ChannelStore.lookup(key);
+		if (c instanceof BooleanChannel) {
+			return ((BooleanChannel) c).get();
+		} else if (c != null) {
+			return Boolean.parseBoolean(c.getAsString());
+		}
 		existenceCheck(key, "boolean");
 		return Boolean.parseBoolean(map.get(key));
 	}
@@ -56,9 +157,19 @@ public class BIGData {
 	 * @return The corresponding double value, or 0.0 if the key was invalid
 	 */
 	public static double getDouble(String key) {
+		Channel c = ChannelStore.lookup(key);
+		if (c instanceof DoubleChannel) {
+			return ((DoubleChannel) c).get();
+		} else if (c != null) {
+			return parseDouble(c.getAsString());
+		}
 		existenceCheck(key, "double");
+		return parseDouble(map.get(key));
+	}
+
+	private static double parseDouble(String val) {
 		try {
-			return Double.parseDouble(map.get(key));
+			return Double.parseDouble(val);
 		} catch (Exception e) {
 			return 0.0;
 		}
@@ -71,15 +182,34 @@ public class BIGData {
 	 *         found/invalid
 	 */
 	public static int getInt(String key) {
-		existenceCheck(key, "int");
+		Channel c = ChannelStore.lookup(key);
+		String val;
+		if (c instanceof LongChannel) {
+			return (int) ((LongChannel) c).get();
+		} else if (c != null) {
+			val = c.getAsString();
+		} else {
+			existenceCheck(key, "int");
+			val = map.get(key);
+		}
 		try {
-			return Integer.parseInt(map.get(key));
+			return Integer.parseInt(val);
 		} catch (Exception e) {
 			return -1;
 		}
 	}
 
 	public static long getLong(String key) {
+		Channel c = ChannelStore.lookup(key);
+		if (c instanceof LongChannel) {
+			return ((LongChannel) c).get();
+		} else if (c != null) {
+			try {
+				return Long.parseLong(c.getAsString());
+			} catch (Exception e) {
+				return -1;
+			}
+		}
 		existenceCheck(key, "long");
 		try {
 			return Long.parseLong(map.get(key));
@@ -95,12 +225,18 @@ public class BIGData {
 	 *         not found/invalid
 	 */
 	public static String getString(String key) {
+		Channel c = ChannelStore.lookup(key);
+		if (c != null) {
+			return c.getAsString();
+		}
 		existenceCheck(key, "String");
 		return map.get(key);
 	}
 
 	/**
-	 * Request translational and angular velocity of the robot
+	 * Request translational and angular velocity of the robot. The request is
+	 * published as one drive command, stamped with the current Clock.nanoTime()
+	 * and the next sequence number.
 	 * 
 	 * @param vx
 	 *               requested x velocity from -1.0 to 1.0
@@ -110,34 +246,84 @@ public class BIGData {
 	 *               requested angular velocity
 	 */
 	public static void requestDrive(double vx, double vy, double w) {
-		put("requested_vx", vx);
-		put("requested_vy", vy);
-		put("requested_w", w);
+		requestDrive(vx, vy, w, 0);
+	}
+
+	/**
+	 * Request translational and angular velocity of the robot, made from input
+	 * (e.g. a joystick) read at the given time. The input time is carried with
+	 * the command so its latency can be traced.
+	 * 
+	 * @param inputTime
+	 *                      the Clock.nanoTime() the input was read, or 0 if unknown
+	 */
+	public static void requestDrive(double vx, double vy, double w, long inputTime) {
+		long seq = requestedDriveLock.beginWrite() + 1;
+		requestedVX.set(vx);
+		requestedVY.set(vy);
+		requestedW.set(w);
+		requestedDriveTime.set(Clock.nanoTime());
+		requestedDriveInputTime.set(inputTime);
+		requestedDriveSeq.set(seq);
+		requestedDriveLock.endWrite();
+		Runnable listener = driveRequestListener;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Set a listener to run on the requesting thread after every drive request,
+	 * or null for none. The listener should only signal another thread (e.g.
+	 * {@link frc.swerve.LoopScheduler#wake()}), since it delays the caller of
+	 * requestDrive.
+	 */
+	public static void setDriveRequestListener(Runnable listener) {
+		driveRequestListener = listener;
+	}
+
+	/**
+	 * Copy the latest drive command into dest. All of its fields always come
+	 * from the same call to requestDrive.
+	 */
+	public static void getDriveCommand(DriveCommand dest) {
+		while (true) {
+			long seq = requestedDriveLock.beginRead();
+			dest.vx = requestedVX.get();
+			dest.vy = requestedVY.get();
+			dest.w = requestedW.get();
+			dest.timestamp = requestedDriveTime.get();
+			dest.inputTimestamp = requestedDriveInputTime.get();
+			dest.sequence = requestedDriveSeq.get();
+			if (requestedDriveLock.validate(seq)) {
+				return;
+			}
+		}
 	}
 
 	/** get the requested x velocity of the robot */
 	public static double getRequestedVX() {
-		return getDouble("requested_vx");
+		return requestedVX.get();
 	}
 
 	/** get the requested y velocity of the robot */
 	public static double getRequestedVY() {
-		return getDouble("requested_vy");
+		return requestedVY.get();
 	}
 
 	/** get the requested angular velocity of the robot */
 	public static double getRequestedW() {
-		return getDouble("requested_w");
+		return requestedW.get();
 	}
 
 	/** Request that the gyro be zeroed. */
 	public static void putZeroGyroRequest(boolean request) {
-		put("zero_gyro", request);
+		zeroGyro.set(request);
 	}
 
 	/** Get whether the gyro has been requested to be zeroed. */
 	public static boolean getZeroGyroRequest() {
-		return getBoolean("zero_gyro");
+		return zeroGyro.get();
 	}
 
 	/** get a string containing a comma separated, ordered list of the joystick input mapping's x values */
@@ -151,27 +337,46 @@ public class BIGData {
 
 	/** set the gyro's angle */
 	public static void putGyroAngle(double angle) {
-		put("gyro_ang", angle);
+		gyroAngle.set(angle);
 	}
 
 	/** Request that swerve module azimuths be zeroed. */
 	public static void putZeroSwerveRequest(boolean request) {
-		put("zero_swerve", request);
+		zeroSwerve.set(request);
 	}
 
 	/** Get whether swerve module azimuths has been requested to be zeroed. */
 	public static boolean getZeroSwerveRequest() {
-		return getBoolean("zero_swerve");
+		return zeroSwerve.get();
 	}
 
 	/** request to zero a single swerve module */
 	public static void putZeroIndivSwerveRequest(int wheelNum, boolean setTo) {
-		put("zero_module_" + wheelNum, setTo);
+		zeroModuleChannel(wheelNum).set(setTo);
 	}
 
 	/** get whether a single swerve module has been requested to be zeroed */
 	public static boolean getZeroIndivSwerveRequest(int wheelNum) {
-		return getBoolean("zero_module_" + wheelNum);
+		return zeroModuleChannel(wheelNum).get();
+	}
+
+	/** get the zero request channel for a single swerve module */
+	private static BooleanChannel zeroModuleChannel(int wheelNum) {
+		BooleanChannel[] channels = zeroModule;
+		if (wheelNum < channels.length) {
+			return channels[wheelNum];
+		}
+		synchronized (BIGData.class) {
+			if (wheelNum >= zeroModule.length) {
+				BooleanChannel[] grown = new BooleanChannel[wheelNum + 1];
+				System.arraycopy(zeroModule, 0, grown, 0, zeroModule.length);
+				for (int i = zeroModule.length; i < grown.length; i++) {
+					grown[i] = booleanChannel("zero_module_" + i);
+				}
+				zeroModule = grown;
+			}
+			return zeroModule[wheelNum];
+		}
 	}
 
 	/** set the config file message to display to drivers */
@@ -186,22 +391,42 @@ public class BIGData {
 
 	/** put (or update) a key/value mapping into the map */
 	public static void put(String key, String val) {
-		map.put(key, val);
+		Channel c = ChannelStore.lookup(key);
+		if (c != null) {
+			c.setFromString(val);
+		} else {
+			map.put(key, val);
+		}
 	}
 
 	/** put (or update) a key/value mapping into the map */
 	public static void put(String key, double val) {
-		map.put(key, "" + val);
+		Channel c = ChannelStore.lookup(key);
+		if (c instanceof DoubleChannel) {
+			((DoubleChannel) c).set(val);
+		} else {
+			put(key, "" + val);
+		}
 	}
 
 	/** put (or update) a key/value mapping into the map */
 	public static void put(String key, int val) {
-		map.put(key, "" + val);
+		Channel c = ChannelStore.lookup(key);
+		if (c instanceof LongChannel) {
+			((LongChannel) c).set(val);
+		} else {
+			put(key, "" + val);
+		}
 	}
 
 	/** put (or update) a key/value mapping into the map */
 	public static void put(String key, boolean val) {
-		map.put(key, "" + val);
+		Channel c = ChannelStore.lookup(key);
+		if (c instanceof BooleanChannel) {
+			((BooleanChannel) c).set(val);
+		} else {
+			put(key, "" + val);
+		}
 	}
 
 	/** resets the local config file (that contains the swerve zeros) */
@@ -211,9 +436,28 @@ public class BIGData {
 
 	/**
 	 * Writes the current local mappings to the local config file in home/lvuser.
-	 * (updates swerve zeroes in local file)
+	 * (updates swerve zeroes in local file) The file is written by a background
+	 * thread, so this returns immediately. When the write is done, the config
+	 * file message is updated and "local_config_written" catches up to
+	 * "local_config_requested", or "local_config_failed" goes up if the write
+	 * failed.
 	 */
 	public static void updateLocalConfigFile() {
-		Config.updateLocalConfigFile();
+		ConfigWriter.request();
     }
+
+	/**
+	 * Save a value to the local config file with the next
+	 * {@link #updateLocalConfigFile()}. The value is put into BIGData (and
+	 * checked against {@link ConfigSchema}) when the config watcher reloads the
+	 * file, so change listeners see it like any other config change.
+	 */
+	public static void putLocalConfig(String key, double val) {
+		Config.putLocal(key, "" + val);
+	}
+
+	/** like {@link #putLocalConfig(String, double)}, for a boolean key */
+	public static void putLocalConfig(String key, boolean val) {
+		Config.putLocal(key, "" + val);
+	}
 }
\ No newline at end of file
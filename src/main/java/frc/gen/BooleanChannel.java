@@ -0,0 +1,29 @@
+package frc.gen;
+
+/** A BIGData channel holding a boolean value */
+public final class BooleanChannel extends Channel {
+
+	BooleanChannel(String key, int slot) {
+		super(key, slot);
+	}
+
+	/** get the current value of this channel */
+	public boolean get() {
+		return ChannelStore.booleans.get(slot) != 0;
+	}
+
+	/** set the value of this channel */
+	public void set(boolean val) {
+		ChannelStore.booleans.set(slot, val ? 1 : 0);
+	}
+
+	@Override
+	String getAsString() {
+		return Boolean.toString(get());
+	}
+
+	@Override
+	void setFromString(String val) {
+		set(Boolean.parseBoolean(val));
+	}
+}
@@ -0,0 +1,29 @@
+package frc.gen;
+
+/**
+ * A BIGData key that has been resolved once to a typed, primitive storage slot.
+ * Reading or writing a channel does not hash the key, parse a string or
+ * allocate, so channels should be used for values touched every loop.
+ */
+public abstract class Channel {
+	/** the BIGData key this channel is bound to */
+	private final String key;
+	/** index of this channel's slot in the backing array for its type */
+	final int slot;
+
+	Channel(String key, int slot) {
+		this.key = key;
+		this.slot = slot;
+	}
+
+	/** get the BIGData key this channel is bound to */
+	public String getKey() {
+		return key;
+	}
+
+	/** get the value of this channel as a string (used by the string api) */
+	abstract String getAsString();
+
+	/** parse the string and store it in this channel (used by the string api) */
+	abstract void setFromString(String val);
+}
@@ -0,0 +1,115 @@
+package frc.gen;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Backing storage for BIGData channels. Every channel owns one slot in the
+ * primitive array for its type. The arrays are a fixed size so a channel
+ * handle never has to follow a reallocated array.
+ * <p>
+ * Slots are read and written with volatile semantics through atomic arrays
+ * (doubles are stored as their raw long bits), so channels can be shared
+ * between the robot, swerve and module threads without locking. Only
+ * registering a new channel takes a lock.
+ * </p>
+ */
+class ChannelStore {
+	/** maximum number of channels of each type */
+	static final int CAPACITY = 256;
+
+	/** double slots, stored as Double.doubleToRawLongBits */
+	static final AtomicLongArray doubles = new AtomicLongArray(CAPACITY);
+	static final AtomicLongArray longs = new AtomicLongArray(CAPACITY);
+	/** boolean slots, stored as 0 or 1 */
+	static final AtomicIntegerArray booleans = new AtomicIntegerArray(CAPACITY);
+
+	private static int doubleCount = 0;
+	private static int longCount = 0;
+	private static int booleanCount = 0;
+
+	/** all registered channels, by key */
+	private static final Map<String, Channel> channels = new ConcurrentHashMap<String, Channel>();
+
+	/** the string map the channels were seeded from, or null before BIGData.start() */
+	private static Map<String, String> seedMap;
+
+	private ChannelStore() {
+	}
+
+	/** get the channel registered for the key, or null if there isn't one */
+	static Channel lookup(String key) {
+		return channels.get(key);
+	}
+
+	static synchronized DoubleChannel doubleChannel(String key) {
+		Channel c = channels.get(key);
+		if (c == null) {
+			checkCapacity(doubleCount, key);
+			c = register(new DoubleChannel(key, doubleCount++));
+		}
+		return (DoubleChannel) checkType(c, DoubleChannel.class);
+	}
+
+	static synchronized LongChannel longChannel(String key) {
+		Channel c = channels.get(key);
+		if (c == null) {
+			checkCapacity(longCount, key);
+			c = register(new LongChannel(key, longCount++));
+		}
+		return (LongChannel) checkType(c, LongChannel.class);
+	}
+
+	static synchronized BooleanChannel booleanChannel(String key) {
+		Channel c = channels.get(key);
+		if (c == null) {
+			checkCapacity(booleanCount, key);
+			c = register(new BooleanChannel(key, booleanCount++));
+		}
+		return (BooleanChannel) checkType(c, BooleanChannel.class);
+	}
+
+	/**
+	 * Move any values in the map that belong to registered channels into the
+	 * channels. Keys registered after this call are seeded from the map as they
+	 * are registered.
+	 */
+	static synchronized void adopt(Map<String, String> map) {
+		seedMap = map;
+		for (Channel c : channels.values()) {
+			seed(c);
+		}
+	}
+
+	private static Channel register(Channel c) {
+		channels.put(c.getKey(), c);
+		if (seedMap != null) {
+			seed(c);
+		}
+		return c;
+	}
+
+	/** take the channel's value out of the string map, if it is there */
+	private static void seed(Channel c) {
+		String val = seedMap.remove(c.getKey());
+		if (val != null) {
+			c.setFromString(val);
+		}
+	}
+
+	private static void checkCapacity(int count, String key) {
+		if (count >= CAPACITY) {
+			throw new IllegalStateException("out of BIGData channel slots, unable to register " + key);
+		}
+	}
+
+	private static Channel checkType(Channel c, Class<? extends Channel> type) {
+		if (!type.isInstance(c)) {
+			throw new IllegalArgumentException(
+					"BIGData key " + c.getKey() + " is already a " + c.getClass().getSimpleName());
+		}
+		return c;
+	}
+}
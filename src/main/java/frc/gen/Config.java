@@ -4,13 +4,20 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class stores its configuration information in 3 files:
@@ -37,27 +44,46 @@ class Config {
 	 */
 	private static String localConfigFileName;
 
-    /** config values that must be contained in the local config file */
-    //TODO change this to only one swerve module
-	private static String[] VALUES_REQUIRED_FOR_LOCAL = { "fr_offset", "br_offset", "bl_offset", "fl_offset" };
+	/**
+	 * config values that must be contained in the local config file: the
+	 * "&lt;module&gt;_offset" of every module in "swerve_modules"
+	 */
+	private static String[] VALUES_REQUIRED_FOR_LOCAL = {};
+
+	/**
+	 * values to save to the local config file that aren't in BIGData yet. They
+	 * are put into BIGData when the config watcher reloads the file
+	 */
+	private static final Map<String, String> pendingLocalValues = new ConcurrentHashMap<>();
 
     public static Map<String, String> getMap() {
 		return map;
 	}
 
+	/** get the deploy config file, or null if no deploy config file was loaded */
+	static File getDeployConfigFile() {
+		return deployConfigFileName == null ? null : new File("/home/lvuser/deploy", deployConfigFileName);
+	}
+
+	/** get the local config file, or null if there is no local config file */
+	static File getLocalConfigFile() {
+		return localConfigFileName == null ? null : new File("/home/lvuser", localConfigFileName);
+	}
+
 	/** initialize the main map and shooter rpm maps from the configuration files */
 	public static void start(Map<String, String> givenMap) {
-		Arrays.sort(VALUES_REQUIRED_FOR_LOCAL);
 		map = givenMap;
 		try {
 			// get deploy config file name
 			Scanner nameScanner = new Scanner(new File("/home/lvuser/name.192"));
-			deployConfigFileName = nameScanner.nextLine() + ".txt";
+			String configName = nameScanner.nextLine();
+			deployConfigFileName = configName + ".txt";
 			nameScanner.close();
 			// load deploy config file
 			String directory = "/home/lvuser/deploy";
 			System.out.println("reading from deploy config file " + deployConfigFileName);
 			loadFromFile(new File(directory, deployConfigFileName));
+			setRequiredLocalValues();
 
 			// load local config file from "home/lvuser"
 			localConfigFileName = map.getOrDefault("local_config_file", "local_config.txt");
@@ -73,104 +99,142 @@ class Config {
 		}
 	}
 
-	/** load config values from the given file into the map */
-	public static void loadFromFile(File f) throws FileNotFoundException {
-		Scanner in = new Scanner(f);
+	/** set VALUES_REQUIRED_FOR_LOCAL from the swerve modules in the config */
+	private static void setRequiredLocalValues() {
+		String[] modules = map.getOrDefault("swerve_modules", "").split(",");
+		String[] required = new String[modules.length];
+		for (int i = 0; i < modules.length; i++) {
+			required[i] = modules[i].trim() + "_offset";
+		}
+		Arrays.sort(required);
+		VALUES_REQUIRED_FOR_LOCAL = required;
+	}
 
-		// add configs to map
-		while (in.hasNextLine()) {
-			String line = in.nextLine().trim();
+	/**
+	 * initialize the main map from a single config file, without a local config
+	 * file. Used when running robot code off the robot (e.g. in simulation)
+	 */
+	public static void start(Map<String, String> givenMap, File configFile) throws FileNotFoundException {
+		map = givenMap;
+		loadFromFile(configFile);
+	}
 
-			if (line.length() > 0 && line.charAt(0) != '#') {
-				String[] splitted = line.split("=", 2);
-				if (splitted.length == 2)
-					map.put(splitted[0].trim(), splitted[1].trim());
-			}
+	/** load config values from the given file into the map */
+	public static void loadFromFile(File f) throws FileNotFoundException {
+		try {
+			ConfigParser.parse(f, map);
+		} catch (IOException e) {
+			throw new FileNotFoundException(f.toString());
 		}
-		in.close();
+	}
+
+	/**
+	 * Save a value to the local config file the next time it is written, adding
+	 * the key to the file if it isn't there.
+	 */
+	static void putLocal(String key, String value) {
+		pendingLocalValues.put(key, value);
 	}
 
 	/**
 	 * Writes the current local mappings to the local config file in home/lvuser.
-	 * (updates swerve zeroes in local file)
+	 * (updates swerve zeroes in local file) This blocks on the filesystem, so
+	 * it is only called from the {@link ConfigWriter} thread.
+	 * @return whether the file was written
 	 */
-	public static void updateLocalConfigFile() {
+	static boolean updateLocalConfigFile() {
+		if (localConfigFileName == null) {
+			BIGData.putConfigFileMsg("there is no local config file to update");
+			return false;
+		}
 		File f = new File("/home/lvuser", localConfigFileName);
 		if (!f.exists()) {
 			System.out.println("creating the local config file...");
 			resetLocalConfigFile();
 		}
 		// read local config file, store the formatting
-		// queue of all the lines in the file
-		Queue<String> configLines = new LinkedList<String>();
+		List<String> configLines;
 		try {
-			Scanner scanner = new Scanner(f);
-			String input;
-			while (scanner.hasNext()) {
-				input = scanner.nextLine().trim();
-				configLines.add(input);
-			}
-			scanner.close();
-		} catch (FileNotFoundException e) {
-			System.out.println("unable to update the config file, could not find file");
-			return;
+			configLines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			System.out.println("unable to update the config file, could not read file");
+			BIGData.putConfigFileMsg("could not update config file");
+			return false;
 		}
 
-		// put new config file at "configlocaltemp.txt", then atomically rename
-		// it later to replace old config file
-		File tempFile = new File("/home/lvuser", "configlocaltemp.txt");
-		FileWriter writer;
-
 		// boolean array parallel to VALUES_REQUIRED_FOR_LOCAL so all the required
 		// values make it into local config
 		// by default, all values are initialized to false.
 		boolean[] requiredValsExist = new boolean[VALUES_REQUIRED_FOR_LOCAL.length];
-
-		try {
-			writer = new FileWriter(tempFile);
-			String line, key;
-			while (!configLines.isEmpty()) {
-				// get the next line from the queue
-				line = configLines.remove();
-				if (line.isEmpty()) {
-					writer.write("\n");
-				} else if (line.charAt(0) != '#') {
-					// if this line is not a comment, it is a command
-					key = line.split("=", 2)[0].trim();
-					// if it is one of the required values, note that it has been put into the
-					// updated config file
-					int index = Arrays.binarySearch(VALUES_REQUIRED_FOR_LOCAL, key);
-					if (index >= 0) {
-						requiredValsExist[index] = true;
-					}
-					if (map.containsKey(key)) {
-						writer.write(key + "=" + map.get(key) + "\n");
-					} else {
-						System.out.println(
-								"could not find corresponding value for " + key + ", writing '" + line + "' to file");
-						writer.write(line);
-					}
-				} else if (line.charAt(0) == '#') {
-					// write comments to the file (# denotes a comment)
-					writer.write(line + "\n");
+		// values that have reached BIGData don't need to be saved separately anymore
+		pendingLocalValues.entrySet().removeIf(e -> e.getValue().equals(BIGData.peek(e.getKey())));
+		Map<String, String> pending = new TreeMap<>(pendingLocalValues);
+
+		StringBuilder contents = new StringBuilder();
+		for (String rawLine : configLines) {
+			String line = rawLine.trim();
+			if (line.isEmpty()) {
+				contents.append('\n');
+			} else if (line.charAt(0) != '#') {
+				// if this line is not a comment, it is a command
+				String key = line.split("=", 2)[0].trim();
+				// if it is one of the required values, note that it has been put into the
+				// updated config file
+				int index = Arrays.binarySearch(VALUES_REQUIRED_FOR_LOCAL, key);
+				if (index >= 0) {
+					requiredValsExist[index] = true;
+				}
+				String value = pending.containsKey(key) ? pending.remove(key) : BIGData.peek(key);
+				if (value != null) {
+					contents.append(key).append('=').append(value).append('\n');
+				} else {
+					System.out.println(
+							"could not find corresponding value for " + key + ", writing '" + line + "' to file");
+					contents.append(line).append('\n');
 				}
+			} else {
+				// write comments to the file (# denotes a comment)
+				contents.append(line).append('\n');
 			}
+		}
 
-			// write the required values to the file
-			for (int i = 0; i < VALUES_REQUIRED_FOR_LOCAL.length; i++) {
-				if (!requiredValsExist[i]) {
-					writer.write(
-							VALUES_REQUIRED_FOR_LOCAL[i] + "=" + map.getOrDefault(VALUES_REQUIRED_FOR_LOCAL[i], ""));
-				}
+		// write the required values to the file
+		for (int i = 0; i < VALUES_REQUIRED_FOR_LOCAL.length; i++) {
+			if (!requiredValsExist[i]) {
+				String key = VALUES_REQUIRED_FOR_LOCAL[i];
+				String value = pending.containsKey(key) ? pending.remove(key) : BIGData.peek(key);
+				contents.append(key).append('=').append(value == null ? "" : value).append('\n');
 			}
-			writer.close();
+		}
+		// and the saved values that weren't in the file
+		for (Map.Entry<String, String> e : pending.entrySet()) {
+			contents.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+		}
+
+		// put new config file at "configlocaltemp.txt", flush it to flash, then
+		// atomically rename it to replace old config file
+		Path tempFile = Paths.get("/home/lvuser", "configlocaltemp.txt");
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(contents.toString().getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		} catch (IOException e) {
+			BIGData.putConfigFileMsg("could not update config file");
+			e.printStackTrace();
+			return false;
+		}
+		try {
 			// rename file to replace old file
-			Files.move(tempFile.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			Files.move(tempFile, f.toPath(), StandardCopyOption.ATOMIC_MOVE);
 			BIGData.putConfigFileMsg("updated the local config file");
+			return true;
 		} catch (IOException e) {
 			BIGData.putConfigFileMsg("could not update config file");
 			e.printStackTrace();
-			return;
+			return false;
 		}
 	}
 
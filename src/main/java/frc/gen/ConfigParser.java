@@ -0,0 +1,67 @@
+package frc.gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * Parses "key=value" config files in a single pass over the raw bytes of the
+ * file. Lines are trimmed, empty lines and lines starting with '#' are skipped,
+ * and the key and value are split on the first '='.
+ */
+final class ConfigParser {
+
+	private ConfigParser() {
+	}
+
+	/** read the whole file and parse it into the map */
+	static void parse(File f, Map<String, String> into) throws IOException {
+		parse(Files.readAllBytes(f.toPath()), into);
+	}
+
+	/** parse the contents of a config file into the map */
+	static void parse(byte[] data, Map<String, String> into) {
+		int end = data.length;
+		int lineStart = 0;
+		while (lineStart < end) {
+			// find the end of this line and the first '=' in it
+			int lineEnd = lineStart;
+			int equals = -1;
+			while (lineEnd < end && data[lineEnd] != '\n') {
+				if (equals < 0 && data[lineEnd] == '=') {
+					equals = lineEnd;
+				}
+				lineEnd++;
+			}
+			int start = skipSpace(data, lineStart, lineEnd);
+			if (equals >= 0 && data[start] != '#') {
+				into.put(substring(data, start, equals), substring(data, equals + 1, lineEnd));
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	/** index of the first non-whitespace byte in [from, to), or to */
+	private static int skipSpace(byte[] data, int from, int to) {
+		while (from < to && isSpace(data[from])) {
+			from++;
+		}
+		return from;
+	}
+
+	/** the trimmed string in [from, to) */
+	private static String substring(byte[] data, int from, int to) {
+		from = skipSpace(data, from, to);
+		while (to > from && isSpace(data[to - 1])) {
+			to--;
+		}
+		return new String(data, from, to - from, StandardCharsets.UTF_8);
+	}
+
+	/** same definition of whitespace as String.trim() */
+	private static boolean isSpace(byte b) {
+		return b >= 0 && b <= ' ';
+	}
+}
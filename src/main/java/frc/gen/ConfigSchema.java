@@ -0,0 +1,241 @@
+package frc.gen;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The config keys the robot reads, with their types, defaults and allowed
+ * ranges. The schema is checked once in {@link BIGData#start()}: every problem
+ * is collected into one report, and startup fails if there are any. Valid
+ * numeric and boolean values are then parsed into BIGData channels, so reading
+ * them later never parses a string.
+ */
+final class ConfigSchema {
+	/** the type of a config value */
+	enum Type {
+		BOOLEAN, INT, DOUBLE, STRING
+	}
+
+	/** one key of the schema */
+	static final class Key {
+		final String name;
+		final Type type;
+		/** value used when the key is missing or blank, or null if the key is required */
+		final String defaultValue;
+		/** inclusive range of numeric values */
+		final double min;
+		final double max;
+
+		Key(String name, Type type, String defaultValue, double min, double max) {
+			this.name = name;
+			this.type = type;
+			this.defaultValue = defaultValue;
+			this.min = min;
+			this.max = max;
+		}
+
+		boolean isRequired() {
+			return defaultValue == null;
+		}
+	}
+
+	/** highest CAN id a SPARK MAX can be set to */
+	private static final int MAX_CAN_ID = 62;
+	/** highest analog input channel on the roboRIO, including the MXP */
+	private static final int MAX_ANALOG_CHANNEL = 7;
+
+	private final Map<String, Key> keys = new LinkedHashMap<>();
+
+	/** add a key that must be in the config */
+	ConfigSchema require(String name, Type type, double min, double max) {
+		keys.put(name, new Key(name, type, null, min, max));
+		return this;
+	}
+
+	/** add a key that uses defaultValue when it is missing or blank */
+	ConfigSchema optional(String name, Type type, String defaultValue, double min, double max) {
+		keys.put(name, new Key(name, type, defaultValue, min, max));
+		return this;
+	}
+
+	ConfigSchema require(String name, Type type) {
+		return require(name, type, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	ConfigSchema optional(String name, Type type, String defaultValue) {
+		return optional(name, type, defaultValue, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * the schema of the robot code, including the keys of every module in
+	 * "swerve_modules"
+	 */
+	static ConfigSchema robot(Map<String, String> config) {
+		ConfigSchema schema = new ConfigSchema();
+		schema.require("swerve_modules", Type.STRING);
+		schema.require("swerve_steering_gear_ratio", Type.DOUBLE, Double.MIN_VALUE, Double.MAX_VALUE)
+				.require("swerve_drive_gear_ratio", Type.DOUBLE, Double.MIN_VALUE, Double.MAX_VALUE)
+				.require("swerve_max_motor_speed", Type.DOUBLE, Double.MIN_VALUE, Double.MAX_VALUE)
+				.require("swerve_wheel_radius", Type.DOUBLE, Double.MIN_VALUE, Double.MAX_VALUE)
+				.optional("swerve_wheel_max_acceleration", Type.DOUBLE, "100", Double.MIN_VALUE, Double.MAX_VALUE)
+				.optional("swerve_azimuth_encoder_ticks", Type.INT, "1024", 1, Integer.MAX_VALUE)
+				.optional("swerve_pipeline", Type.BOOLEAN, "false")
+				.optional("swerve_telemetry", Type.BOOLEAN, "false");
+		schema.optional("wheel_angle_kP", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("wheel_angle_kI", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("wheel_angle_kD", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("wheel_angle_max_velocity", Type.DOUBLE, "1", Double.MIN_VALUE, Double.MAX_VALUE)
+				.optional("wheel_angle_max_acceleration", Type.DOUBLE, "1", Double.MIN_VALUE, Double.MAX_VALUE)
+				.optional("wheel_angle_feedforward", Type.BOOLEAN, "false")
+				.optional("wheel_angle_kS", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("wheel_angle_kV", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("wheel_angle_kA", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("wheel_angle_spin_coupling", Type.DOUBLE, "0");
+		schema.optional("drive_velocity_kP", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("drive_velocity_kI", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("drive_velocity_kD", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("drive_velocity_kF", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("drive_kS", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("drive_kA", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("swerve_characterize", Type.BOOLEAN, "false");
+		schema.optional("auto_trajectory", Type.STRING, "")
+				.optional("auto_translation_kP", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("auto_heading_kP", Type.DOUBLE, "0", 0, Double.MAX_VALUE)
+				.optional("auto_max_acceleration", Type.DOUBLE, "2", Double.MIN_VALUE, Double.MAX_VALUE)
+				.optional("auto_motor_speed_fraction", Type.DOUBLE, "0.8", Double.MIN_VALUE, 1);
+		schema.optional("joystick_x_vals", Type.STRING, "").optional("joystick_y_vals", Type.STRING, "");
+
+		String modules = config.getOrDefault("swerve_modules", "").trim();
+		if (!modules.isEmpty()) {
+			for (String module : modules.split(",")) {
+				String name = module.trim();
+				schema.require(name + "_x", Type.DOUBLE).require(name + "_y", Type.DOUBLE)
+						.require(name + "_drive1", Type.INT, 0, MAX_CAN_ID)
+						.require(name + "_drive2", Type.INT, 0, MAX_CAN_ID)
+						.optional(name + "_invert_motor1", Type.BOOLEAN, "false")
+						.optional(name + "_invert_motor2", Type.BOOLEAN, "false")
+						.require(name + "_azimuth_encoder", Type.INT, 0, MAX_ANALOG_CHANNEL);
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Check every key of the schema against the config. Missing or blank
+	 * optional keys are set to their default in the map, and valid numeric and
+	 * boolean values are moved into channels.
+	 * @throws IllegalStateException listing every invalid key, if there are any
+	 */
+	void apply(Map<String, String> config) {
+		List<String> errors = new ArrayList<>();
+		for (Key key : keys.values()) {
+			String val = config.get(key.name);
+			try {
+				String resolved = resolve(key.name, val);
+				if (!resolved.equals(val)) {
+					config.put(key.name, resolved);
+				}
+			} catch (IllegalArgumentException e) {
+				errors.add(e.getMessage());
+			}
+		}
+		if (!errors.isEmpty()) {
+			StringBuilder report = new StringBuilder();
+			report.append(errors.size()).append(" invalid config value(s):");
+			for (String error : errors) {
+				report.append("\n  ").append(error);
+			}
+			System.out.println(report);
+			throw new IllegalStateException(report.toString());
+		}
+		for (Key key : keys.values()) {
+			switch (key.type) {
+			case BOOLEAN:
+				ChannelStore.booleanChannel(key.name);
+				break;
+			case INT:
+				ChannelStore.longChannel(key.name);
+				break;
+			case DOUBLE:
+				ChannelStore.doubleChannel(key.name);
+				break;
+			case STRING:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Check a value for a key. Keys that aren't in the schema accept any value.
+	 * @param val the value from the config, or null if the key is missing
+	 * @return the value to use, which is the default if val is missing or blank
+	 * @throws IllegalArgumentException describing the problem, if the value is invalid
+	 */
+	String resolve(String name, String val) {
+		Key key = keys.get(name);
+		if (key == null) {
+			return val;
+		}
+		if (val == null || val.isEmpty()) {
+			if (key.isRequired()) {
+				throw new IllegalArgumentException(name + ": missing (" + key.type.name().toLowerCase() + ")");
+			}
+			return key.defaultValue;
+		}
+		String error = check(key, val);
+		if (error != null) {
+			throw new IllegalArgumentException(name + "=" + val + ": " + error);
+		}
+		return val;
+	}
+
+	/** @return a description of what is wrong with the value, or null if it is valid */
+	private static String check(Key key, String val) {
+		double number;
+		switch (key.type) {
+		case BOOLEAN:
+			if (!val.equalsIgnoreCase("true") && !val.equalsIgnoreCase("false")) {
+				return "not a boolean";
+			}
+			return null;
+		case INT:
+			try {
+				number = Integer.parseInt(val);
+			} catch (NumberFormatException e) {
+				return "not an int";
+			}
+			break;
+		case DOUBLE:
+			try {
+				number = Double.parseDouble(val);
+			} catch (NumberFormatException e) {
+				return "not a number";
+			}
+			if (!Double.isFinite(number)) {
+				return "not a finite number";
+			}
+			break;
+		default:
+			return null;
+		}
+		if (number < key.min || number > key.max) {
+			return "out of range " + range(key);
+		}
+		return null;
+	}
+
+	private static String range(Key key) {
+		String min = key.min == Double.MIN_VALUE ? "(0" : "[" + format(key.min);
+		String max = format(key.max) + "]";
+		if (key.max >= Integer.MAX_VALUE) {
+			max = "inf)";
+		}
+		return min + ", " + max;
+	}
+
+	private static String format(double val) {
+		return val == Math.rint(val) ? Long.toString((long) val) : Double.toString(val);
+	}
+}
@@ -0,0 +1,255 @@
+package frc.gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+
+/**
+ * Applies config changes while the robot code is running. The deploy and
+ * local config files are watched for changes, and values put in the
+ * NetworkTables table "config_override" override the files. Changed values are
+ * checked against the {@link ConfigSchema} (invalid changes are ignored), put
+ * into BIGData, and then the listeners subscribed to any of the changed keys
+ * are run.
+ * <p>
+ * Changes are applied and listeners run while holding one lock, so a listener
+ * always reads a complete set of changes. Listeners run on the watcher or
+ * NetworkTables thread: they should build the new values and hand them to the
+ * control loops (e.g. through a volatile field), not touch the loops' state.
+ * </p>
+ */
+class ConfigWatcher {
+	/** how long to wait for more file events before reloading, in milliseconds */
+	private static final long SETTLE_MILLIS = 100;
+	/** NetworkTables table with config overrides */
+	private static final String OVERRIDE_TABLE = "config_override";
+
+	private static final Object lock = new Object();
+	private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	/** values from the override table, which take precedence over the files */
+	private static final Map<String, String> overrides = new HashMap<>();
+	/** the values in the config files when they were last read */
+	private static Map<String, String> fileValues = new HashMap<>();
+
+	private static ConfigSchema schema;
+	private static File deployFile;
+	private static File localFile;
+	private static Thread thread;
+
+	private static final LongChannel reloadsChannel = BIGData.longChannel("config_reloads");
+
+	/** a listener and the keys it is subscribed to */
+	private static class Listener {
+		final Set<String> keys;
+		final Runnable action;
+
+		Listener(Set<String> keys, Runnable action) {
+			this.keys = keys;
+			this.action = action;
+		}
+	}
+
+	private ConfigWatcher() {
+	}
+
+	/** run the action whenever any of the keys changes */
+	static void addListener(Runnable action, String... keys) {
+		listeners.add(new Listener(new HashSet<>(Arrays.asList(keys)), action));
+	}
+
+	/** start watching the config files and the override table */
+	static synchronized void start(ConfigSchema configSchema) {
+		if (thread != null) {
+			return;
+		}
+		schema = configSchema;
+		deployFile = Config.getDeployConfigFile();
+		localFile = Config.getLocalConfigFile();
+
+		NetworkTableInstance.getDefault().getTable(OVERRIDE_TABLE).addEntryListener(
+				(table, key, entry, value, flags) -> override(key, valueToString(value)),
+				EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+
+		if (deployFile == null) {
+			return;
+		}
+		Map<String, String> values = readFiles();
+		if (values != null) {
+			fileValues = values;
+		}
+		// register before returning, so no change made after startup is missed
+		WatchService watcher;
+		Set<Path> names = new HashSet<>();
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+			for (File f : new File[] { deployFile, localFile }) {
+				if (f != null) {
+					names.add(f.toPath().getFileName());
+					// the local file is replaced by a rename when it is written, so watch for creates too
+					f.toPath().getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+							StandardWatchEventKinds.ENTRY_CREATE);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("unable to watch the config files for changes");
+			return;
+		}
+		thread = new Thread(() -> run(watcher, names), "config-watcher");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private static void run(WatchService watcher, Set<Path> names) {
+		try {
+			while (true) {
+				boolean changed = drain(watcher.take(), names);
+				// let the write that triggered the event finish, and collect the rest of its events
+				Thread.sleep(SETTLE_MILLIS);
+				WatchKey key;
+				while ((key = watcher.poll()) != null) {
+					changed |= drain(key, names);
+				}
+				if (changed) {
+					reload();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+		}
+	}
+
+	/** @return whether any of the key's events were for the watched file names */
+	private static boolean drain(WatchKey key, Set<Path> names) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (names.contains(event.context())) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * read the config files again and apply the values that changed in them.
+	 * Values that didn't change in the files are left alone, so changes made
+	 * while the robot is running (e.g. new swerve zeroes) aren't undone
+	 */
+	private static void reload() {
+		Map<String, String> values = readFiles();
+		if (values == null) {
+			return;
+		}
+		Map<String, String> changed = new HashMap<>();
+		for (Map.Entry<String, String> e : values.entrySet()) {
+			if (!e.getValue().equals(fileValues.get(e.getKey()))) {
+				changed.put(e.getKey(), e.getValue());
+			}
+		}
+		fileValues = values;
+		synchronized (lock) {
+			// values from the override table stay in effect
+			changed.keySet().removeAll(overrides.keySet());
+			apply(changed);
+		}
+	}
+
+	/** @return the values in the config files, with the local file taking precedence, or null if they can't be read */
+	private static Map<String, String> readFiles() {
+		Map<String, String> values = new HashMap<>();
+		try {
+			ConfigParser.parse(deployFile, values);
+			if (localFile != null && localFile.exists()) {
+				ConfigParser.parse(localFile, values);
+			}
+		} catch (IOException e) {
+			System.out.println("unable to read config files: " + e.getMessage());
+			return null;
+		}
+		return values;
+	}
+
+	/** apply a value from the override table */
+	private static void override(String key, String val) {
+		if (val == null) {
+			System.out.println("ignoring config override " + key + ", it must be a number, boolean or string");
+			return;
+		}
+		Map<String, String> values = new HashMap<>();
+		values.put(key, val);
+		synchronized (lock) {
+			overrides.put(key, val);
+			apply(values);
+		}
+	}
+
+	/** put the values that changed into BIGData, then run their listeners */
+	private static void apply(Map<String, String> values) {
+		Set<String> changed = new HashSet<>();
+		for (Map.Entry<String, String> e : values.entrySet()) {
+			String key = e.getKey();
+			String val;
+			try {
+				val = schema.resolve(key, e.getValue());
+			} catch (IllegalArgumentException ex) {
+				System.out.println("ignoring config change " + ex.getMessage());
+				continue;
+			}
+			// compare after storing, so e.g. "8" and "8.0" in a double channel are the same
+			String before = BIGData.peek(key);
+			BIGData.put(key, val);
+			if (!BIGData.peek(key).equals(before)) {
+				changed.add(key);
+			}
+		}
+		if (changed.isEmpty()) {
+			return;
+		}
+		System.out.println("config changed: " + changed);
+		reloadsChannel.set(reloadsChannel.get() + 1);
+		for (Listener listener : listeners) {
+			if (!Collections.disjoint(listener.keys, changed)) {
+				try {
+					listener.action.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/** @return the value as a config string, or null if it is another type (e.g. an array) */
+	private static String valueToString(NetworkTableValue value) {
+		if (value.isDouble()) {
+			double d = value.getDouble();
+			// so whole numbers can be used for int keys
+			if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+				return Long.toString((long) d);
+			}
+			return Double.toString(d);
+		} else if (value.isBoolean()) {
+			return Boolean.toString(value.getBoolean());
+		} else if (value.isString()) {
+			return value.getString().trim();
+		}
+		return null;
+	}
+}
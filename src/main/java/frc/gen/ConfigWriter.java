@@ -0,0 +1,81 @@
+package frc.gen;
+
+/**
+ * Background thread that writes the local config file, so the control loops
+ * never wait on the filesystem. Requests made while a write is pending are
+ * coalesced into one write. Progress is reported through BIGData:
+ * "local_config_requested" counts requests, "local_config_written" is the
+ * number of requests covered by successful writes, and "local_config_failed"
+ * counts writes that failed. A failed write isn't retried until the next
+ * request.
+ */
+class ConfigWriter {
+	/** how long to wait for more requests before writing, in milliseconds */
+	private static final long COALESCE_MILLIS = 100;
+
+	private static final Object lock = new Object();
+	private static long requested;
+	/** requests covered by writes that were tried, whether or not they succeeded */
+	private static long handled;
+	private static long failed;
+	private static Thread thread;
+
+	private static final LongChannel requestedChannel = BIGData.longChannel("local_config_requested");
+	private static final LongChannel writtenChannel = BIGData.longChannel("local_config_written");
+	private static final LongChannel failedChannel = BIGData.longChannel("local_config_failed");
+
+	private ConfigWriter() {
+	}
+
+	/** request that the local config file be written. Does not block on the filesystem */
+	static void request() {
+		synchronized (lock) {
+			requested++;
+			requestedChannel.set(requested);
+			if (thread == null) {
+				thread = new Thread(ConfigWriter::run, "config-writer");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				thread.start();
+			}
+			lock.notifyAll();
+		}
+	}
+
+	private static void run() {
+		try {
+			while (true) {
+				synchronized (lock) {
+					while (requested == handled) {
+						lock.wait();
+					}
+				}
+				// give a burst of requests (e.g. zeroing several modules) time to arrive
+				Thread.sleep(COALESCE_MILLIS);
+				long target;
+				synchronized (lock) {
+					target = requested;
+				}
+				boolean success;
+				try {
+					success = Config.updateLocalConfigFile();
+				} catch (RuntimeException e) {
+					// keep the thread alive for the next request
+					e.printStackTrace();
+					success = false;
+				}
+				synchronized (lock) {
+					handled = target;
+					if (!success) {
+						failed++;
+						failedChannel.set(failed);
+					}
+				}
+				if (success) {
+					writtenChannel.set(target);
+				}
+			}
+		} catch (InterruptedException e) {
+		}
+	}
+}
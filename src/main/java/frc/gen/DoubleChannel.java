@@ -0,0 +1,33 @@
+package frc.gen;
+
+/** A BIGData channel holding a double value */
+public final class DoubleChannel extends Channel {
+
+	DoubleChannel(String key, int slot) {
+		super(key, slot);
+	}
+
+	/** get the current value of this channel */
+	public double get() {
+		return Double.longBitsToDouble(ChannelStore.doubles.get(slot));
+	}
+
+	/** set the value of this channel */
+	public void set(double val) {
+		ChannelStore.doubles.set(slot, Double.doubleToRawLongBits(val));
+	}
+
+	@Override
+	String getAsString() {
+		return Double.toString(get());
+	}
+
+	@Override
+	void setFromString(String val) {
+		try {
+			set(Double.parseDouble(val));
+		} catch (Exception e) {
+			set(0.0);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package frc.gen;
+
+/**
+ * A requested chassis motion, published all at once through
+ * {@link BIGData#requestDrive(double, double, double)} and copied out all at
+ * once with {@link BIGData#getDriveCommand(DriveCommand)}. Consumers should
+ * keep one instance and reuse it every loop.
+ */
+public final class DriveCommand {
+	double vx;
+	double vy;
+	double w;
+	long timestamp;
+	long inputTimestamp;
+	long sequence;
+
+	/** get the requested x velocity, from -1.0 to 1.0 */
+	public double getVX() {
+		return vx;
+	}
+
+	/** get the requested y velocity, from -1.0 to 1.0 */
+	public double getVY() {
+		return vy;
+	}
+
+	/** get the requested angular velocity */
+	public double getW() {
+		return w;
+	}
+
+	/** get the Clock.nanoTime() at which this command was published */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * get the Clock.nanoTime() at which the input this command was made from
+	 * was read, or 0 if it isn't known
+	 */
+	public long getInputTimestamp() {
+		return inputTimestamp;
+	}
+
+	/**
+	 * get the sequence number of this command. The first command published is
+	 * 1, and 0 means no command has been published yet.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+}
@@ -0,0 +1,33 @@
+package frc.gen;
+
+/** A BIGData channel holding a long value */
+public final class LongChannel extends Channel {
+
+	LongChannel(String key, int slot) {
+		super(key, slot);
+	}
+
+	/** get the current value of this channel */
+	public long get() {
+		return ChannelStore.longs.get(slot);
+	}
+
+	/** set the value of this channel */
+	public void set(long val) {
+		ChannelStore.longs.set(slot, val);
+	}
+
+	@Override
+	String getAsString() {
+		return Long.toString(get());
+	}
+
+	@Override
+	void setFromString(String val) {
+		try {
+			set(Long.parseLong(val));
+		} catch (Exception e) {
+			set(-1);
+		}
+	}
+}
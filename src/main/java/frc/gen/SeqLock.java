@@ -0,0 +1,52 @@
+package frc.gen;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sequence lock for values that are written together and should be read
+ * together. Readers never block: they read the values between
+ * {@link #beginRead()} and {@link #validate(long)} and retry if a write
+ * happened in between. The values themselves must be read and written with
+ * volatile semantics (e.g. through channels).
+ */
+final class SeqLock {
+	/** odd while a write is in progress, incremented twice per write */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Wait for any in-progress write to finish and return the sequence to pass to
+	 * validate once the values have been read
+	 */
+	long beginRead() {
+		long seq = sequence.get();
+		while ((seq & 1) != 0) {
+			Thread.onSpinWait();
+			seq = sequence.get();
+		}
+		return seq;
+	}
+
+	/** whether the values read since beginRead returned seq are consistent */
+	boolean validate(long seq) {
+		return sequence.get() == seq;
+	}
+
+	/**
+	 * Claim the lock for writing, waiting for any other writer to finish.
+	 * 
+	 * @return the number of writes completed before this one
+	 */
+	long beginWrite() {
+		while (true) {
+			long seq = sequence.get();
+			if ((seq & 1) == 0 && sequence.compareAndSet(seq, seq + 1)) {
+				return seq >> 1;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	void endWrite() {
+		sequence.incrementAndGet();
+	}
+}
@@ -7,11 +7,16 @@
 
 package frc.robot;
 
+import java.nio.file.Paths;
+
 import edu.wpi.first.wpilibj.TimedRobot;
 import frc.control.input.JoystickProfile;
 import frc.gen.BIGData;
+import frc.swerve.Characterization;
 import frc.swerve.Swerve;
 import frc.control.Mode;
+import frc.util.LatencyTracer;
+import frc.util.LoopTimer;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -22,6 +27,10 @@ import frc.control.Mode;
  */
 public class Robot extends TimedRobot {
     private Swerve swerve;
+    private LoopTimer teleopTimer;
+    /** the characterization running in test mode, or null */
+    private Characterization characterization;
+
     @Override
     public void robotInit() {
         BIGData.start();
@@ -29,31 +38,78 @@ public class Robot extends TimedRobot {
         Mode.initModes();
         swerve = new Swerve();
         swerve.start();
+        teleopTimer = new LoopTimer("teleop", getPeriod());
+    }
+
+    @Override
+    public void robotPeriodic() {
+        swerve.setTelemetryRecording(isEnabled());
+        LoopTimer.publishAll();
+        LatencyTracer.publish();
+    }
+
+    @Override
+    public void disabledInit() {
+        swerve.stopCharacterization();
+        characterization = null;
+        // save the drive latency of the match that just ended, off the robot thread
+        Thread writer = new Thread(() -> LatencyTracer.writeLog(Paths.get("/home/lvuser/latency.bin")),
+                "latency-log");
+        writer.setDaemon(true);
+        writer.start();
     }
 
     @Override
     public void autonomousInit() {
+        LatencyTracer.reset();
+        Mode.getMode(1).init();
     }
 
     @Override
     public void autonomousPeriodic() {
+        Mode.getMode(1).loop();
     }
 
     @Override
     public void teleopInit() {
+        LatencyTracer.reset();
     }
 
     @Override
     public void teleopPeriodic() {
+        teleopTimer.start();
         Mode.getMode(0).loop();
+        teleopTimer.stop();
     }
 
     @Override
     public void testInit() {
+        // measure the feedforward constants of the modules, see Characterization. Only
+        // when asked for, since the robot drives on its own
+        if (!BIGData.getBoolean("swerve_characterize")) {
+            System.out.println("test mode: set swerve_characterize=true in the config to characterize swerve");
+            return;
+        }
+        System.out.println("WARNING: characterizing swerve, the robot will drive a few meters forwards"
+                + " and backwards. Disable to stop it");
+        // one run per request, even if it is stopped early
+        BIGData.putLocalConfig("swerve_characterize", false);
+        BIGData.updateLocalConfigFile();
+        characterization = swerve.startCharacterization();
     }
 
     @Override
     public void testPeriodic() {
+        if (characterization != null && characterization.isDone()) {
+            if (characterization.fit()) {
+                characterization.save();
+                System.out.println("saved characterization to the local config file: "
+                        + characterization.getConfigValues());
+            } else {
+                System.out.println("characterization failed, nothing was saved");
+            }
+            characterization = null;
+        }
     }
 
 }
@@ -0,0 +1,263 @@
+package frc.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import frc.util.GRTUtil;
+
+/**
+ * Rigid body simulation of a differential swerve drive. Each module has two
+ * NEOs geared to the ring gear (azimuth) and the wheel axle:
+ * <p>
+ * motor1 = steer * steeringGearRatio + spin * driveGearRatio <br>
+ * motor2 = steer * steeringGearRatio - spin * driveGearRatio
+ * </p>
+ * <p>
+ * so the ring gear is driven by the sum of the motor torques and the wheel by
+ * their difference. The wheels push the chassis through a tire model with slip,
+ * and the chassis moves in the plane. The simulation only advances in
+ * {@link #step(double)}, with whatever fixed dt the caller chooses, so it is
+ * independent of the wall clock.
+ * </p>
+ * <p>
+ * The robot frame has x to the right and y forward. A module azimuth of 0
+ * points the wheel forward. The chassis heading is counterclockwise positive.
+ * </p>
+ */
+public class DiffSwervePhysics {
+	// NEO motor constants
+	private static final double NEO_STALL_TORQUE = 2.6; // N*m
+	private static final double NEO_STALL_CURRENT = 105; // A
+	private static final double NEO_FREE_CURRENT = 1.8; // A
+	private static final double NEO_FREE_SPEED = 5676 * GRTUtil.TWO_PI / 60; // rad/s
+	private static final double NEO_NOMINAL_VOLTAGE = 12; // V
+	private static final double NEO_RESISTANCE = NEO_NOMINAL_VOLTAGE / NEO_STALL_CURRENT;
+	private static final double NEO_KT = NEO_STALL_TORQUE / NEO_STALL_CURRENT;
+	private static final double NEO_KV = (NEO_NOMINAL_VOLTAGE - NEO_RESISTANCE * NEO_FREE_CURRENT)
+			/ NEO_FREE_SPEED;
+	private static final double GRAVITY = 9.81;
+
+	/** Physical properties of the robot. Defaults are for a typical 2020 robot */
+	public static class Parameters {
+		/** number of rotations of the drive motor that results in one rotation of the ring gear */
+		public double steeringGearRatio;
+		/** number of rotations of the motor shaft that results in one rotation of the wheel axle gear */
+		public double driveGearRatio;
+		/** wheel radius, in meters */
+		public double wheelRadius = 0.0508;
+		/** robot mass, in kg */
+		public double robotMass = 50;
+		/** moment of inertia of the robot about its center, in kg*m^2 */
+		public double robotMomentOfInertia = 6;
+		/** moment of inertia of the ring gear and wheel assembly about the azimuth axis, in kg*m^2 */
+		public double ringGearInertia = 0.002;
+		/** moment of inertia of the wheel about its axle, in kg*m^2 */
+		public double wheelInertia = 0.0005;
+		/** moment of inertia of a NEO rotor, in kg*m^2 */
+		public double motorInertia = 0.0001;
+		/** torque needed to turn a module's azimuth against carpet, in N*m */
+		public double steerFriction = 0.3;
+		/** viscous friction of the ring gear, in N*m per rad/s */
+		public double steerDamping = 0.01;
+		/** coefficient of friction between the wheels and the carpet */
+		public double frictionCoefficient = 1.1;
+		/** slip speed at which the tires reach most of their grip, in m/s */
+		public double slipVelocity = 0.05;
+		/** battery voltage, in volts */
+		public double busVoltage = 12;
+
+		public Parameters(double steeringGearRatio, double driveGearRatio) {
+			this.steeringGearRatio = steeringGearRatio;
+			this.driveGearRatio = driveGearRatio;
+		}
+	}
+
+	/** State of one simulated module */
+	public static class ModuleState {
+		public final SimDriveMotor motor1 = new SimDriveMotor();
+		public final SimDriveMotor motor2 = new SimDriveMotor();
+		public final SimAzimuthEncoder encoder = new SimAzimuthEncoder();
+		/** position of the module relative to the center of the robot, in meters */
+		private final double x, y;
+		/** azimuth of the wheel, in radians */
+		private double azimuth;
+		private double azimuthVelocity;
+		/** rotation of the wheel about its axle, in radians */
+		private double wheelAngle;
+		private double wheelVelocity;
+		/** force the tire exerts on the ground last step, in newtons */
+		private double tireForce;
+
+		private ModuleState(double x, double y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		/** get the azimuth of the wheel, in radians */
+		public double getAzimuth() {
+			return azimuth;
+		}
+
+		/** get the azimuth speed of the wheel, in radians/sec */
+		public double getAzimuthVelocity() {
+			return azimuthVelocity;
+		}
+
+		/** get the spin speed of the wheel, in radians/sec */
+		public double getWheelVelocity() {
+			return wheelVelocity;
+		}
+
+		/** get the magnitude of the force between the tire and the carpet last step, in newtons */
+		public double getTireForce() {
+			return tireForce;
+		}
+	}
+
+	private final Parameters params;
+	private final List<ModuleState> modules = new ArrayList<ModuleState>();
+
+	// chassis state, in the field frame
+	private double x, y, heading;
+	private double vx, vy, omega;
+	private double time;
+
+	public DiffSwervePhysics(Parameters params) {
+		if (params.steeringGearRatio == 0 || params.driveGearRatio == 0) {
+			throw new IllegalArgumentException("the steering and drive gear ratios must be set to simulate swerve");
+		}
+		this.params = params;
+	}
+
+	/**
+	 * Add a module to the simulation.
+	 * 
+	 * @param xPos the x position of the module relative to the center of the robot, in meters
+	 * @param yPos the y position of the module relative to the center of the robot, in meters
+	 */
+	public ModuleState addModule(double xPos, double yPos) {
+		ModuleState m = new ModuleState(xPos, yPos);
+		modules.add(m);
+		return m;
+	}
+
+	/** advance the simulation by dt seconds */
+	public void step(double dt) {
+		Parameters p = params;
+		double gs = p.steeringGearRatio;
+		double gd = p.driveGearRatio;
+		double steerInertia = p.ringGearInertia + 2 * p.motorInertia * gs * gs;
+		double wheelInertia = p.wheelInertia + 2 * p.motorInertia * gd * gd;
+		double maxTireForce = p.frictionCoefficient * p.robotMass * GRAVITY / Math.max(modules.size(), 1);
+
+		double cosH = Math.cos(heading);
+		double sinH = Math.sin(heading);
+		// chassis velocity in the robot frame
+		double robotVX = vx * cosH + vy * sinH;
+		double robotVY = -vx * sinH + vy * cosH;
+
+		double forceX = 0, forceY = 0, torque = 0;
+		for (int i = 0; i < modules.size(); i++) {
+			ModuleState m = modules.get(i);
+			// motor torques from the voltage their controllers apply
+			double motorSpeed1 = gs * m.azimuthVelocity + gd * m.wheelVelocity;
+			double motorSpeed2 = gs * m.azimuthVelocity - gd * m.wheelVelocity;
+			double torque1 = motorTorque(m.motor1.computeVoltage(dt, p.busVoltage), motorSpeed1);
+			double torque2 = motorTorque(m.motor2.computeVoltage(dt, p.busVoltage), motorSpeed2);
+
+			// velocity of the ground under the wheel, along and across the wheel
+			double wheelDirection = m.azimuth + Math.PI / 2;
+			double ux = Math.cos(wheelDirection);
+			double uy = Math.sin(wheelDirection);
+			double groundVX = robotVX - omega * m.y;
+			double groundVY = robotVY + omega * m.x;
+			double alongVelocity = groundVX * ux + groundVY * uy;
+			double acrossVelocity = -groundVX * uy + groundVY * ux;
+
+			// tire forces on the chassis, limited to the friction circle
+			double slip = m.wheelVelocity * p.wheelRadius - alongVelocity;
+			double alongForce = maxTireForce * Math.tanh(slip / p.slipVelocity);
+			double acrossForce = -maxTireForce * Math.tanh(acrossVelocity / p.slipVelocity);
+			double tireForce = Math.hypot(alongForce, acrossForce);
+			if (tireForce > maxTireForce) {
+				alongForce *= maxTireForce / tireForce;
+				acrossForce *= maxTireForce / tireForce;
+				tireForce = maxTireForce;
+			}
+			m.tireForce = tireForce;
+			double fx = alongForce * ux - acrossForce * uy;
+			double fy = alongForce * uy + acrossForce * ux;
+			forceX += fx;
+			forceY += fy;
+			torque += m.x * fy - m.y * fx;
+
+			// ring gear and wheel dynamics
+			double steerTorque = gs * (torque1 + torque2) - p.steerDamping * m.azimuthVelocity
+					- p.steerFriction * Math.tanh(m.azimuthVelocity / 0.1);
+			double wheelTorque = gd * (torque1 - torque2) - alongForce * p.wheelRadius;
+			m.azimuthVelocity += steerTorque / steerInertia * dt;
+			m.wheelVelocity += wheelTorque / wheelInertia * dt;
+			m.azimuth += m.azimuthVelocity * dt;
+			m.wheelAngle += m.wheelVelocity * dt;
+
+			// sensors
+			m.motor1.setState(gs * m.azimuthVelocity + gd * m.wheelVelocity, gs * m.azimuth + gd * m.wheelAngle);
+			m.motor2.setState(gs * m.azimuthVelocity - gd * m.wheelVelocity, gs * m.azimuth - gd * m.wheelAngle);
+			m.encoder.setPosition(m.azimuth / GRTUtil.TWO_PI);
+		}
+
+		// chassis dynamics, with forces rotated into the field frame
+		vx += (forceX * cosH - forceY * sinH) / p.robotMass * dt;
+		vy += (forceX * sinH + forceY * cosH) / p.robotMass * dt;
+		omega += torque / p.robotMomentOfInertia * dt;
+		x += vx * dt;
+		y += vy * dt;
+		heading += omega * dt;
+		time += dt;
+	}
+
+	/** torque of a NEO at the given voltage and speed, in N*m */
+	private static double motorTorque(double voltage, double speed) {
+		return NEO_KT * (voltage - NEO_KV * speed) / NEO_RESISTANCE;
+	}
+
+	/** get the simulated modules, in the order they were added */
+	public List<ModuleState> getModules() {
+		return modules;
+	}
+
+	/** get the number of seconds simulated */
+	public double getTime() {
+		return time;
+	}
+
+	/** get the x position of the robot on the field, in meters */
+	public double getX() {
+		return x;
+	}
+
+	/** get the y position of the robot on the field, in meters */
+	public double getY() {
+		return y;
+	}
+
+	/** get the heading of the robot, in radians counterclockwise */
+	public double getHeading() {
+		return heading;
+	}
+
+	/** get the x velocity of the robot on the field, in m/s */
+	public double getVX() {
+		return vx;
+	}
+
+	/** get the y velocity of the robot on the field, in m/s */
+	public double getVY() {
+		return vy;
+	}
+
+	/** get the angular velocity of the robot, in radians/sec counterclockwise */
+	public double getOmega() {
+		return omega;
+	}
+}
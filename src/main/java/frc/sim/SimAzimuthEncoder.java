@@ -0,0 +1,31 @@
+package frc.sim;
+
+import frc.swerve.AzimuthEncoder;
+
+/** A simulated azimuth encoder whose position is set by the simulation */
+public class SimAzimuthEncoder implements AzimuthEncoder {
+	/** actual azimuth of the wheel, in rotations */
+	private double position;
+	/** position that reads as zero, in rotations */
+	private double offset;
+
+	/** set the actual azimuth of the wheel, in rotations */
+	public void setPosition(double rotations) {
+		position = rotations;
+	}
+
+	/** get the actual azimuth of the wheel, in rotations, ignoring the zero offset */
+	public double getPosition() {
+		return position;
+	}
+
+	@Override
+	public double get() {
+		return position - offset;
+	}
+
+	@Override
+	public void reset() {
+		offset = position;
+	}
+}
@@ -0,0 +1,56 @@
+package frc.sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import frc.gen.BIGData;
+import frc.swerve.Characterization;
+import frc.swerve.Swerve;
+
+/**
+ * Runs the characterization from test mode against the simulated robot, and
+ * writes the constants it measures in the config file format. Useful for
+ * checking the characterization against the known physics of the simulation,
+ * and as a starting point before a robot can be characterized.
+ * <p>
+ * Usage: SimCharacterization &lt;config file&gt; &lt;output file&gt;
+ * </p>
+ */
+public class SimCharacterization {
+	/** the tests are abandoned if they take longer than this, in simulated seconds */
+	private static final double TIMEOUT = 120;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("usage: SimCharacterization <config file> <output file>");
+			return;
+		}
+		BIGData.start(new File(args[0]));
+		SwerveSimulation sim = new SwerveSimulation();
+		Characterization characterization = sim.getSwerve().startCharacterization();
+		long start = System.nanoTime();
+		while (!characterization.isDone() && sim.getTime() < TIMEOUT) {
+			// keep the drive command fresh, swerve drives again once the tests are done
+			BIGData.requestDrive(0, 0, 0);
+			sim.run(Swerve.SWERVE_LOOP_PERIOD);
+		}
+		if (!characterization.isDone()) {
+			System.out.println("characterization did not finish in " + TIMEOUT + " s");
+			return;
+		}
+		System.out.printf("simulated %.1f s of tests in %.3f s%n", sim.getTime(), (System.nanoTime() - start) / 1e9);
+		if (!characterization.fit()) {
+			System.out.println("characterization failed, nothing was written");
+			return;
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(new File(args[1]).toPath())) {
+			writer.write("# from SimCharacterization\n");
+			for (Map.Entry<String, Double> e : characterization.getConfigValues().entrySet()) {
+				writer.write(e.getKey() + "=" + e.getValue() + "\n");
+			}
+		}
+	}
+}
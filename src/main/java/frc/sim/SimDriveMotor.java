@@ -0,0 +1,116 @@
+package frc.sim;
+
+import frc.swerve.DriveMotor;
+
+/**
+ * A simulated NEO on a SparkMax running its velocity loop. The velocity PIDF
+ * controller, arbitrary feedforward, output range and closed loop ramp rate
+ * of the SparkMax are emulated here; the motor's speed and position are set
+ * by {@link DiffSwervePhysics}.
+ */
+public class SimDriveMotor implements DriveMotor {
+	/** period of the SparkMax's internal control loop, in seconds */
+	private static final double SPARK_LOOP_PERIOD = 0.001;
+	/** output range of the velocity controller, as a fraction of bus voltage */
+	private static final double MAX_OUTPUT = 0.9;
+	/** closed loop ramp rate, in seconds from 0 to full output */
+	private static final double RAMP_RATE = 0.1;
+
+	private double kP, kI, kD, kF;
+	private double setpoint;
+	/** volts added to the controller's output */
+	private double feedforward;
+	/** whether the motor is driven at openLoopVoltage instead of by the velocity controller */
+	private boolean openLoop;
+	private double openLoopVoltage;
+	/** bus voltage at the last computeVoltage */
+	private double busVoltage;
+	private double integral;
+	private double prevError;
+	/** controller output, as a fraction of bus voltage */
+	private double output;
+
+	private double velocity;
+	private double position;
+
+	/**
+	 * Run the velocity controller for dt seconds and return the voltage it
+	 * applies to the motor.
+	 */
+	public double computeVoltage(double dt, double busVoltage) {
+		this.busVoltage = busVoltage;
+		double maxChange = dt / RAMP_RATE;
+		if (openLoop) {
+			// the open loop ramp rate is the same as the closed loop one
+			double target = Math.max(-1, Math.min(1, openLoopVoltage / busVoltage));
+			output += Math.max(-maxChange, Math.min(maxChange, target - output));
+			return output * busVoltage;
+		}
+		double error = setpoint - velocity;
+		// the SparkMax accumulates error once per loop, so its kI is per millisecond
+		integral += error * dt / SPARK_LOOP_PERIOD;
+		double derivative = (error - prevError) * SPARK_LOOP_PERIOD / dt;
+		prevError = error;
+		double target = kF * setpoint + kP * error + kI * integral + kD * derivative + feedforward / busVoltage;
+		target = Math.max(-MAX_OUTPUT, Math.min(MAX_OUTPUT, target));
+		output += Math.max(-maxChange, Math.min(maxChange, target - output));
+		return output * busVoltage;
+	}
+
+	/** set the speed and position of the motor shaft (radians/sec and radians) */
+	public void setState(double velocity, double position) {
+		this.velocity = velocity;
+		this.position = position;
+	}
+
+	/** get the velocity setpoint most recently requested, in radians/sec */
+	public double getSetpoint() {
+		return setpoint;
+	}
+
+	/** get the controller output, as a fraction of bus voltage */
+	public double getOutput() {
+		return output;
+	}
+
+	@Override
+	public void setVelocity(double velocity, double feedforward) {
+		if (openLoop) {
+			// start the velocity controller fresh
+			openLoop = false;
+			integral = 0;
+			prevError = 0;
+		}
+		setpoint = velocity;
+		this.feedforward = feedforward;
+	}
+
+	@Override
+	public void setVoltage(double volts) {
+		openLoop = true;
+		openLoopVoltage = volts;
+	}
+
+	@Override
+	public double getAppliedVoltage() {
+		return output * busVoltage;
+	}
+
+	@Override
+	public double getVelocity() {
+		return velocity;
+	}
+
+	@Override
+	public double getPosition() {
+		return position;
+	}
+
+	@Override
+	public void setPIDF(double kP, double kI, double kD, double kF) {
+		this.kP = kP;
+		this.kI = kI;
+		this.kD = kD;
+		this.kF = kF;
+	}
+}
@@ -0,0 +1,26 @@
+package frc.sim;
+
+import frc.swerve.SwerveGyro;
+
+/** A simulated gyro whose heading is set by the simulation */
+public class SimGyro implements SwerveGyro {
+	/** actual heading of the robot, in degrees clockwise */
+	private double angle;
+	/** heading that reads as zero, in degrees */
+	private double offset;
+
+	/** set the actual heading of the robot, in degrees clockwise */
+	public void setAngle(double degrees) {
+		angle = degrees;
+	}
+
+	@Override
+	public double getAngle() {
+		return angle - offset;
+	}
+
+	@Override
+	public void zeroYaw() {
+		offset = angle;
+	}
+}
@@ -0,0 +1,69 @@
+package frc.sim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import frc.gen.BIGData;
+import frc.swerve.AzimuthEncoder;
+import frc.swerve.DriveMotor;
+import frc.swerve.SwerveGyro;
+import frc.swerve.SwerveHardware;
+
+/**
+ * Simulated swerve hardware backed by {@link DiffSwervePhysics}. The
+ * simulation only advances when {@link #step(double)} is called, so it can run
+ * as fast as the computer allows. Module positions are read from BIGData as
+ * "&lt;module&gt;_x" and "&lt;module&gt;_y", in meters.
+ */
+public class SimSwerveHardware implements SwerveHardware {
+	private final DiffSwervePhysics physics;
+	private final Map<String, DiffSwervePhysics.ModuleState> modules = new LinkedHashMap<>();
+	private final SimGyro gyro = new SimGyro();
+
+	/** create simulated hardware using the gear ratios in BIGData and default physical properties */
+	public SimSwerveHardware() {
+		this(new DiffSwervePhysics.Parameters(BIGData.getDouble("swerve_steering_gear_ratio"),
+				BIGData.getDouble("swerve_drive_gear_ratio")));
+	}
+
+	public SimSwerveHardware(DiffSwervePhysics.Parameters params) {
+		physics = new DiffSwervePhysics(params);
+	}
+
+	@Override
+	public DriveMotor createDriveMotor(String moduleName, int motor) {
+		DiffSwervePhysics.ModuleState m = getModule(moduleName);
+		return motor == 1 ? m.motor1 : m.motor2;
+	}
+
+	@Override
+	public AzimuthEncoder createAzimuthEncoder(String moduleName) {
+		return getModule(moduleName).encoder;
+	}
+
+	@Override
+	public SwerveGyro createGyro() {
+		return gyro;
+	}
+
+	/** get the simulated state of a module, adding it to the simulation if needed */
+	public DiffSwervePhysics.ModuleState getModule(String moduleName) {
+		return modules.computeIfAbsent(moduleName, k -> physics.addModule(BIGData.getDouble(k + "_x"),
+				BIGData.getDouble(k + "_y")));
+	}
+
+	public SimGyro getGyro() {
+		return gyro;
+	}
+
+	public DiffSwervePhysics getPhysics() {
+		return physics;
+	}
+
+	/** advance the simulation by dt seconds */
+	public void step(double dt) {
+		physics.step(dt);
+		// the navX reads clockwise positive
+		gyro.setAngle(-Math.toDegrees(physics.getHeading()));
+	}
+}
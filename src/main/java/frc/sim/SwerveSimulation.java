@@ -0,0 +1,97 @@
+package frc.sim;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import frc.gen.BIGData;
+import frc.swerve.Swerve;
+import frc.util.Clock;
+
+/**
+ * Runs the swerve control code against {@link DiffSwervePhysics} on simulated
+ * time. The physics, module loop and swerve loop are stepped at fixed
+ * intervals of simulated time, so a simulation runs as fast as the computer
+ * allows and gives the same result every time.
+ * <p>
+ * While a simulation exists, {@link Clock} reads its simulated time, so only
+ * one simulation should run in a JVM at once.
+ * </p>
+ */
+public class SwerveSimulation {
+	/** physics step, in seconds */
+	public static final double PHYSICS_DT = 0.0005;
+	private static final int MODULE_STEPS = (int) Math.round(Swerve.MODULE_LOOP_PERIOD / PHYSICS_DT);
+	private static final int SWERVE_STEPS = (int) Math.round(Swerve.SWERVE_LOOP_PERIOD / PHYSICS_DT);
+
+	private final SimSwerveHardware hardware;
+	private final Swerve swerve;
+	private long steps;
+	private volatile long simNanos;
+
+	/** create a simulation using the gear ratios in BIGData */
+	public SwerveSimulation() {
+		this(new SimSwerveHardware());
+	}
+
+	public SwerveSimulation(SimSwerveHardware hardware) {
+		Clock.setSource(() -> simNanos);
+		this.hardware = hardware;
+		swerve = new Swerve(hardware, false);
+	}
+
+	/**
+	 * Run the simulation for the given number of seconds. Drive requests made
+	 * through BIGData are picked up by the swerve loop as usual.
+	 */
+	public void run(double seconds) {
+		long end = steps + Math.round(seconds / PHYSICS_DT);
+		while (steps < end) {
+			if (steps % SWERVE_STEPS == 0) {
+				swerve.runSwerve();
+			}
+			if (steps % MODULE_STEPS == 0) {
+				swerve.runModules();
+			}
+			hardware.step(PHYSICS_DT);
+			steps++;
+			simNanos = Math.round(steps * PHYSICS_DT * 1e9);
+		}
+	}
+
+	/** get the number of seconds simulated */
+	public double getTime() {
+		return steps * PHYSICS_DT;
+	}
+
+	public Swerve getSwerve() {
+		return swerve;
+	}
+
+	public SimSwerveHardware getHardware() {
+		return hardware;
+	}
+
+	/**
+	 * Drive forward then spin in place, and report how fast the simulation ran.
+	 * Usage: SwerveSimulation &lt;config file&gt; [simulated seconds]
+	 */
+	public static void main(String[] args) throws FileNotFoundException {
+		BIGData.start(new File(args[0]));
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 60;
+		SwerveSimulation sim = new SwerveSimulation();
+		DiffSwervePhysics physics = sim.getHardware().getPhysics();
+
+		long start = System.nanoTime();
+		while (sim.getTime() < seconds) {
+			// alternate between driving forward and rotating every 2 seconds
+			boolean drive = ((long) (sim.getTime() / 2)) % 2 == 0;
+			BIGData.requestDrive(0, drive ? 1 : 0, drive ? 0 : 1);
+			sim.run(Swerve.SWERVE_LOOP_PERIOD);
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		System.out.printf("simulated %.1f s in %.3f s (%.0fx real time)%n", sim.getTime(), elapsed,
+				sim.getTime() / elapsed);
+		System.out.printf("final pose: x=%.3f m, y=%.3f m, heading=%.3f rad%n", physics.getX(), physics.getY(),
+				physics.getHeading());
+	}
+}
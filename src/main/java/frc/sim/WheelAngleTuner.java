@@ -0,0 +1,238 @@
+package frc.sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import frc.gen.BIGData;
+import frc.swerve.Module;
+import frc.swerve.Swerve;
+import frc.swerve.WheelAngleGains;
+import frc.util.GRTUtil;
+
+/**
+ * Headless tool that searches a grid of wheel angle gains and profile
+ * constraints. Every candidate drives a simulated module through the same
+ * sequence of azimuth steps, and is scored on settle time, overshoot and how
+ * often the motors are saturated. Candidates are simulated in parallel on a
+ * ForkJoinPool, and the best one is written out in the config file format.
+ * <p>
+ * Usage: WheelAngleTuner &lt;config file&gt; &lt;output file&gt; [--kP=1,2,5]
+ * [--kI=0] [--kD=0,0.1] [--maxVelocity=10,20] [--maxAcceleration=50,100]
+ * [--feedforward=true] [--threads=N]
+ * </p>
+ * <p>
+ * The feedforward settings (wheel_angle_feedforward, kS, kV, kA and spin
+ * coupling) come from the config file, and --feedforward overrides whether
+ * feedforward is used.
+ * </p>
+ */
+public class WheelAngleTuner {
+	/** azimuth error that counts as settled, in radians */
+	private static final double SETTLE_TOLERANCE = Math.toRadians(2);
+	/** cost of overshoot, in seconds per radian */
+	private static final double OVERSHOOT_WEIGHT = 2;
+	/** cost of saturating the motors for a whole step, in seconds */
+	private static final double SATURATION_WEIGHT = 1;
+	/** how long each azimuth step is held, in seconds */
+	private static final double STEP_DURATION = 1.0;
+	/**
+	 * azimuth targets (in rotations) the module is stepped through, and the wheel
+	 * speed during each step as a fraction of the maximum. The targets stay away
+	 * from the 0/1 rotation boundary
+	 */
+	private static final double[] STEP_TARGETS = { 0.125, 0.375, 0.0625, 0.45, 0.2 };
+	private static final double[] STEP_SPIN = { 0, 0, 0, 0.3, 0.3 };
+
+	private static final int MODULE_STEPS = (int) Math.round(Swerve.MODULE_LOOP_PERIOD / SwerveSimulation.PHYSICS_DT);
+
+	private final DiffSwervePhysics.Parameters baseParams;
+	private final double maxMotorSpeed;
+
+	/** Score of one candidate. Lower costs are better */
+	public static class Result {
+		public final WheelAngleGains gains;
+		/** total time to settle over every step, in seconds */
+		public final double settleTime;
+		/** total overshoot over every step, in radians */
+		public final double overshoot;
+		/** fraction of module loop iterations where a motor was at its maximum speed */
+		public final double saturation;
+		public final double cost;
+
+		Result(WheelAngleGains gains, double settleTime, double overshoot, double saturation) {
+			this.gains = gains;
+			this.settleTime = settleTime;
+			this.overshoot = overshoot;
+			this.saturation = saturation;
+			this.cost = settleTime + OVERSHOOT_WEIGHT * overshoot
+					+ SATURATION_WEIGHT * saturation * STEP_TARGETS.length;
+		}
+	}
+
+	/** create a tuner that simulates modules with the gear ratios and motor limits in BIGData */
+	public WheelAngleTuner() {
+		baseParams = new DiffSwervePhysics.Parameters(BIGData.getDouble("swerve_steering_gear_ratio"),
+				BIGData.getDouble("swerve_drive_gear_ratio"));
+		// a single module carries a quarter of the robot
+		baseParams.robotMass /= 4;
+		baseParams.robotMomentOfInertia /= 4;
+		maxMotorSpeed = BIGData.getDouble("swerve_max_motor_speed");
+	}
+
+	/** evaluate every candidate in parallel, returning the results sorted best first */
+	public List<Result> search(List<WheelAngleGains> candidates, int threads)
+			throws InterruptedException, ExecutionException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.submit(() -> candidates.parallelStream().map(this::evaluate)
+					.sorted(Comparator.comparingDouble((Result r) -> r.cost)).collect(Collectors.toList())).get();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/** simulate one candidate through every azimuth step and score it */
+	public Result evaluate(WheelAngleGains gains) {
+		SimSwerveHardware hardware = new SimSwerveHardware(baseParams);
+		Module module = new Module("tuning", 0, 0, hardware, gains);
+		DiffSwervePhysics physics = hardware.getPhysics();
+		DiffSwervePhysics.ModuleState state = hardware.getModule("tuning");
+		double maxSpin = maxMotorSpeed / baseParams.driveGearRatio;
+
+		int stepsPerTarget = (int) Math.round(STEP_DURATION / SwerveSimulation.PHYSICS_DT);
+		double settleTime = 0, overshoot = 0;
+		long loops = 0, saturatedLoops = 0;
+		for (int i = 0; i < STEP_TARGETS.length; i++) {
+			double target = STEP_TARGETS[i] * GRTUtil.TWO_PI;
+			module.set(target, STEP_SPIN[i] * maxSpin);
+			double initialError = azimuthError(state.getAzimuth(), target);
+			double lastUnsettled = STEP_DURATION;
+			boolean settled = false;
+			double maxOvershoot = 0;
+			for (int step = 0; step < stepsPerTarget; step++) {
+				if (step % MODULE_STEPS == 0) {
+					module.doPIDCalc();
+					loops++;
+					if (Math.abs(state.motor1.getSetpoint()) >= maxMotorSpeed * 0.999
+							|| Math.abs(state.motor2.getSetpoint()) >= maxMotorSpeed * 0.999) {
+						saturatedLoops++;
+					}
+				}
+				physics.step(SwerveSimulation.PHYSICS_DT);
+				double error = azimuthError(state.getAzimuth(), target);
+				if (Math.abs(error) > SETTLE_TOLERANCE) {
+					lastUnsettled = step * SwerveSimulation.PHYSICS_DT;
+					settled = false;
+				} else {
+					settled = true;
+				}
+				// overshoot is error on the far side of the target from where we started
+				maxOvershoot = Math.max(maxOvershoot, -Math.signum(initialError) * error);
+			}
+			settleTime += settled ? lastUnsettled : 2 * STEP_DURATION;
+			overshoot += maxOvershoot;
+		}
+		return new Result(gains, settleTime, overshoot, (double) saturatedLoops / loops);
+	}
+
+	/**
+	 * error between the azimuth and the target, in radians, treating angles half
+	 * a rotation apart as equal (the module can drive in reverse)
+	 */
+	private static double azimuthError(double azimuth, double target) {
+		return GRTUtil.positiveMod(azimuth - target + Math.PI / 2, Math.PI) - Math.PI / 2;
+	}
+
+	/** write the gains to a file in the config file format */
+	public static void writeConfig(Result best, File file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+			writer.write(String.format("# from WheelAngleTuner: cost=%.4f settle=%.4fs overshoot=%.4frad saturation=%.4f%n",
+					best.cost, best.settleTime, best.overshoot, best.saturation));
+			writer.write("wheel_angle_kP=" + best.gains.kP + "\n");
+			writer.write("wheel_angle_kI=" + best.gains.kI + "\n");
+			writer.write("wheel_angle_kD=" + best.gains.kD + "\n");
+			writer.write("wheel_angle_max_velocity=" + best.gains.maxVelocity + "\n");
+			writer.write("wheel_angle_max_acceleration=" + best.gains.maxAcceleration + "\n");
+			writer.write("wheel_angle_feedforward=" + best.gains.feedforward + "\n");
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		BIGData.start(new File(args[0]));
+		File output = new File(args[1]);
+		double[] kP = { 1, 2, 5, 10, 20, 50 };
+		double[] kI = { 0 };
+		double[] kD = { 0, 0.05, 0.1, 0.2 };
+		double[] maxVelocity = { 5, 10, 20, 40 };
+		double[] maxAcceleration = { 20, 50, 100, 200 };
+		WheelAngleGains base = WheelAngleGains.fromBIGData();
+		boolean feedforward = base.feedforward;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 2; i < args.length; i++) {
+			String[] arg = args[i].split("=", 2);
+			switch (arg[0]) {
+			case "--kP":
+				kP = parseList(arg[1]);
+				break;
+			case "--kI":
+				kI = parseList(arg[1]);
+				break;
+			case "--kD":
+				kD = parseList(arg[1]);
+				break;
+			case "--maxVelocity":
+				maxVelocity = parseList(arg[1]);
+				break;
+			case "--maxAcceleration":
+				maxAcceleration = parseList(arg[1]);
+				break;
+			case "--feedforward":
+				feedforward = Boolean.parseBoolean(arg[1]);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(arg[1]);
+				break;
+			default:
+				System.out.println("unknown argument " + args[i]);
+			}
+		}
+
+		base = new WheelAngleGains(0, 0, 0, 1, 1, feedforward, base.kS, base.kV, base.kA, base.spinCoupling);
+		List<WheelAngleGains> candidates = new ArrayList<WheelAngleGains>();
+		for (double p : kP)
+			for (double i : kI)
+				for (double d : kD)
+					for (double v : maxVelocity)
+						for (double a : maxAcceleration)
+							candidates.add(base.withPID(p, i, d, v, a));
+
+		long start = System.nanoTime();
+		List<Result> results = new WheelAngleTuner().search(candidates, threads);
+		System.out.printf("evaluated %d candidates on %d threads in %.2f s%n", candidates.size(), threads,
+				(System.nanoTime() - start) / 1e9);
+		for (int i = 0; i < Math.min(5, results.size()); i++) {
+			Result r = results.get(i);
+			System.out.printf("cost=%.4f kP=%s kI=%s kD=%s maxVel=%s maxAccel=%s%n", r.cost, r.gains.kP,
+					r.gains.kI, r.gains.kD, r.gains.maxVelocity, r.gains.maxAcceleration);
+		}
+		writeConfig(results.get(0), output);
+	}
+
+	private static double[] parseList(String list) {
+		String[] parts = list.split(",");
+		double[] vals = new double[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			vals[i] = Double.parseDouble(parts[i].trim());
+		}
+		return vals;
+	}
+}
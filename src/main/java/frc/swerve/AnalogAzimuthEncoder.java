@@ -0,0 +1,24 @@
+package frc.swerve;
+
+import edu.wpi.first.wpilibj.AnalogEncoder;
+import edu.wpi.first.wpilibj.AnalogInput;
+
+/** An absolute encoder plugged into one of the roboRIO's analog inputs */
+class AnalogAzimuthEncoder implements AzimuthEncoder {
+	private AnalogEncoder encoder;
+
+	/** @param channel the analog input channel the encoder is plugged into */
+	public AnalogAzimuthEncoder(int channel) {
+		encoder = new AnalogEncoder(new AnalogInput(channel));
+	}
+
+	@Override
+	public double get() {
+		return encoder.get();
+	}
+
+	@Override
+	public void reset() {
+		encoder.reset();
+	}
+}
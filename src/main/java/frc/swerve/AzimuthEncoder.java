@@ -0,0 +1,10 @@
+package frc.swerve;
+
+/** Absolute encoder measuring the azimuth (direction) of a swerve module's wheel */
+public interface AzimuthEncoder {
+	/** get the azimuth of the wheel, in rotations. This is not wrapped to [0, 1) */
+	double get();
+
+	/** make the current azimuth the zero position */
+	void reset();
+}
@@ -0,0 +1,327 @@
+package frc.swerve;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import frc.gen.BIGData;
+
+/**
+ * Measures the feedforward constants of every module's motors, the way WPILib's
+ * SysId does. The motors are driven open loop through quasistatic voltage
+ * ramps and dynamic voltage steps, forwards and backwards, first with a
+ * differential voltage (opposite on the two motors) to spin the wheels, then
+ * with a common voltage (the same on both motors) to turn the ring gears. The
+ * wheels are pointed forward before the drive tests, so the robot drives
+ * forward and back a few meters during them.
+ * <p>
+ * {@link #run(long)} is called by the module loop instead of the modules'
+ * normal control, and records the voltages and speeds into arrays allocated
+ * up front. Once it is done, {@link #fit()} fits
+ * V = kS * sgn(v) + kV * v + kA * a to each module and axis, in motor volts
+ * and motor radians/sec, by least squares on the discrete form of the model:
+ * v[k+1] = alpha * v[k] + beta * V[k] + gamma * sgn(v[k]).
+ * </p>
+ */
+public class Characterization {
+	/** how long the normal angle loop points the wheels forward before the tests, in seconds */
+	private static final double ALIGN_DURATION = 1;
+	/** voltage ramp rate of the quasistatic tests, in volts/sec */
+	private static final double QUASISTATIC_RAMP_RATE = 1;
+	private static final double QUASISTATIC_DURATION = 4;
+	/** voltage of the dynamic tests, in volts */
+	private static final double DYNAMIC_VOLTAGE = 4;
+	private static final double DYNAMIC_DURATION = 1.5;
+	/** time at 0 volts after each test, for the motors to stop */
+	private static final double REST_DURATION = 1;
+	/** samples slower than this (motor radians/sec) aren't fit, the motor may be held by static friction */
+	private static final double MIN_VELOCITY = 1;
+
+	/** the axes tested: spinning the wheel and turning the ring gear */
+	private static final int DRIVE = 0, STEER = 1;
+	/** tests of each axis, in order: quasistatic forward and reverse, dynamic forward and reverse */
+	private static final int TESTS_PER_AXIS = 4;
+
+	private final Module[] modules;
+	/** nominal seconds between samples */
+	private final double period;
+
+	/** when the first run() was called, in Clock.nanoTime(), or 0 before then */
+	private long startTime;
+	private int samples;
+	/** the test each sample was taken in (axis * TESTS_PER_AXIS + test) */
+	private final byte[] test;
+	private final long[] time;
+	/** [module][sample] applied voltage and velocity along the axis being tested */
+	private final double[][] voltage;
+	private final double[][] velocity;
+	/** [module][sample] common position of the motors and azimuth of the wheel, in radians */
+	private final double[][] commonPosition;
+	private final double[][] azimuth;
+	private volatile boolean done;
+
+	/** [axis][module] fit constants, in motor volts, radians/sec and radians/sec^2 */
+	private double[][] kS, kV, kA;
+	/** measured steering gear ratio of each module */
+	private double[] steeringRatio;
+
+	/** @param modules the modules to characterize. They are all tested at once */
+	Characterization(Module[] modules) {
+		this.modules = modules;
+		period = Swerve.MODULE_LOOP_PERIOD;
+		double duration = 2 * (2 * (QUASISTATIC_DURATION + REST_DURATION) + 2 * (DYNAMIC_DURATION + REST_DURATION));
+		// the module loop may run more often than its period when it's woken
+		int capacity = (int) (2 * duration / period);
+		test = new byte[capacity];
+		time = new long[capacity];
+		voltage = new double[modules.length][capacity];
+		velocity = new double[modules.length][capacity];
+		commonPosition = new double[modules.length][capacity];
+		azimuth = new double[modules.length][capacity];
+	}
+
+	/**
+	 * Drive the motors for the current point in the tests and record a sample.
+	 * Call every module loop, instead of the modules' normal control
+	 * @param now the current time, in Clock.nanoTime()
+	 * @return false once the tests are done and the motors are stopped
+	 */
+	boolean run(long now) {
+		if (startTime == 0) {
+			startTime = now;
+		}
+		double t = (now - startTime) / 1e9;
+		if (t < ALIGN_DURATION) {
+			for (Module m : modules) {
+				m.set(0, 0);
+				m.calculate();
+				m.applySpeeds(1);
+			}
+			return true;
+		}
+		t -= ALIGN_DURATION;
+		for (int axis = DRIVE; axis <= STEER; axis++) {
+			for (int i = 0; i < TESTS_PER_AXIS; i++) {
+				boolean quasistatic = i < 2;
+				double direction = i % 2 == 0 ? 1 : -1;
+				double duration = quasistatic ? QUASISTATIC_DURATION : DYNAMIC_DURATION;
+				if (t < duration) {
+					double volts = direction * (quasistatic ? QUASISTATIC_RAMP_RATE * t : DYNAMIC_VOLTAGE);
+					for (Module m : modules) {
+						if (axis == DRIVE) {
+							m.setVoltages(0, volts);
+						} else {
+							m.setVoltages(volts, 0);
+						}
+					}
+					record(now, axis, axis * TESTS_PER_AXIS + i);
+					return true;
+				}
+				t -= duration;
+				if (t < REST_DURATION) {
+					for (Module m : modules) {
+						m.setVoltages(0, 0);
+					}
+					return true;
+				}
+				t -= REST_DURATION;
+			}
+		}
+		for (Module m : modules) {
+			m.setVoltages(0, 0);
+		}
+		done = true;
+		return false;
+	}
+
+	/** record the state of every module */
+	private void record(long now, int axis, int testIndex) {
+		if (samples == test.length) {
+			return;
+		}
+		test[samples] = (byte) testIndex;
+		time[samples] = now;
+		for (int j = 0; j < modules.length; j++) {
+			Module m = modules[j];
+			if (axis == DRIVE) {
+				voltage[j][samples] = m.getDifferentialVoltage();
+				velocity[j][samples] = m.getDifferentialVelocity();
+			} else {
+				voltage[j][samples] = m.getCommonVoltage();
+				velocity[j][samples] = m.getCommonVelocity();
+			}
+			commonPosition[j][samples] = m.getCommonPosition();
+			azimuth[j][samples] = m.getAzimuth();
+		}
+		samples++;
+	}
+
+	/** get whether the tests are done */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Fit the constants of every module from the recorded samples and print
+	 * them. Call once the tests are done, from any thread
+	 * @return false if the constants of some module couldn't be fit
+	 */
+	public boolean fit() {
+		kS = new double[2][modules.length];
+		kV = new double[2][modules.length];
+		kA = new double[2][modules.length];
+		steeringRatio = new double[modules.length];
+		boolean fit = true;
+		for (int j = 0; j < modules.length; j++) {
+			for (int axis = DRIVE; axis <= STEER; axis++) {
+				double[] constants = fitAxis(j, axis);
+				if (constants == null) {
+					System.out.println("unable to characterize " + modules[j].getName() + " "
+							+ (axis == DRIVE ? "drive" : "steering") + ", not enough usable samples");
+					fit = false;
+					constants = new double[] { Double.NaN, Double.NaN, Double.NaN };
+				}
+				kS[axis][j] = constants[0];
+				kV[axis][j] = constants[1];
+				kA[axis][j] = constants[2];
+			}
+			steeringRatio[j] = measureSteeringRatio(j);
+			System.out.printf("%s drive: kS %.4f V, kV %.5f V/(rad/s), kA %.6f V/(rad/s^2)%n", modules[j].getName(),
+					kS[DRIVE][j], kV[DRIVE][j], kA[DRIVE][j]);
+			System.out.printf("%s steering: kS %.4f V, kV %.5f V/(rad/s), kA %.6f V/(rad/s^2), gear ratio %.3f%n",
+					modules[j].getName(), kS[STEER][j], kV[STEER][j], kA[STEER][j], steeringRatio[j]);
+		}
+		return fit;
+	}
+
+	/**
+	 * fit the samples of one module and axis
+	 * @return kS, kV and kA, or null if they couldn't be fit
+	 */
+	private double[] fitAxis(int module, int axis) {
+		double[] v = velocity[module];
+		double[] u = voltage[module];
+		// normal equations of the regression of v[k+1] on v[k], V[k] and sgn(v[k])
+		double[][] a = new double[3][4];
+		double[] x = new double[3];
+		long elapsed = 0;
+		int pairs = 0;
+		for (int k = 0; k + 1 < samples; k++) {
+			long dt = time[k + 1] - time[k];
+			if (test[k] / TESTS_PER_AXIS != axis || test[k + 1] != test[k] || Math.abs(v[k]) < MIN_VELOCITY
+					|| Math.abs(dt / 1e9 - period) > period / 2) {
+				continue;
+			}
+			x[0] = v[k];
+			x[1] = u[k];
+			x[2] = Math.signum(v[k]);
+			for (int r = 0; r < 3; r++) {
+				for (int c = 0; c < 3; c++) {
+					a[r][c] += x[r] * x[c];
+				}
+				a[r][3] += x[r] * v[k + 1];
+			}
+			elapsed += dt;
+			pairs++;
+		}
+		if (pairs < 10 || !solve(a)) {
+			return null;
+		}
+		double alpha = a[0][3], beta = a[1][3], gamma = a[2][3];
+		if (!(alpha > 0 && alpha < 1 && beta > 0)) {
+			return null;
+		}
+		double dt = elapsed / 1e9 / pairs;
+		double kv = (1 - alpha) / beta;
+		return new double[] { -gamma / beta, kv, -kv * dt / Math.log(alpha) };
+	}
+
+	/**
+	 * solve a 3x3 system in place by Gaussian elimination with partial pivoting
+	 * @param a the augmented matrix. The solution is left in its last column
+	 * @return false if the system is singular
+	 */
+	private static boolean solve(double[][] a) {
+		int n = a.length;
+		for (int col = 0; col < n; col++) {
+			int pivot = col;
+			for (int r = col + 1; r < n; r++) {
+				if (Math.abs(a[r][col]) > Math.abs(a[pivot][col])) {
+					pivot = r;
+				}
+			}
+			if (Math.abs(a[pivot][col]) < 1e-12) {
+				return false;
+			}
+			double[] swap = a[col];
+			a[col] = a[pivot];
+			a[pivot] = swap;
+			for (int r = 0; r < n; r++) {
+				if (r != col) {
+					double f = a[r][col] / a[col][col];
+					for (int c = col; c <= n; c++) {
+						a[r][c] -= f * a[col][c];
+					}
+				}
+			}
+		}
+		for (int r = 0; r < n; r++) {
+			a[r][n] /= a[r][r];
+		}
+		return true;
+	}
+
+	/** get the ratio of the motors' common rotation to the wheel's azimuth rotation in the steering tests */
+	private double measureSteeringRatio(int module) {
+		double motor = 0;
+		double wheel = 0;
+		for (int k = 0; k + 1 < samples; k++) {
+			if (test[k] / TESTS_PER_AXIS == STEER && test[k + 1] == test[k]) {
+				motor += Math.abs(commonPosition[module][k + 1] - commonPosition[module][k]);
+				// the azimuth wraps around once a rotation
+				wheel += Math.abs(Math.IEEEremainder(azimuth[module][k + 1] - azimuth[module][k], 2 * Math.PI));
+			}
+		}
+		return motor / wheel;
+	}
+
+	/**
+	 * Get the config values for the constants, averaged over the modules:
+	 * drive_velocity_kF from the drive kV, drive_kS and drive_kA per wheel
+	 * radian, and the wheel_angle feedforward constants per azimuth
+	 * radian, with wheel_angle_kV being the part of the steering kV that
+	 * drive_velocity_kF doesn't cover. Call after {@link #fit()} succeeds.
+	 */
+	public Map<String, Double> getConfigValues() {
+		double driveRatio = BIGData.getDouble("swerve_drive_gear_ratio");
+		double steeringGearRatio = BIGData.getDouble("swerve_steering_gear_ratio");
+		double driveKV = average(kV[DRIVE]);
+		Map<String, Double> values = new LinkedHashMap<>();
+		// the SparkMax's kF is a fraction of the output per unit of velocity
+		values.put("drive_velocity_kF", driveKV / 12);
+		values.put("drive_kS", Math.max(0, average(kS[DRIVE])));
+		values.put("drive_kA", average(kA[DRIVE]) * driveRatio);
+		values.put("wheel_angle_kS", Math.max(0, average(kS[STEER])));
+		values.put("wheel_angle_kV", Math.max(0, (average(kV[STEER]) - driveKV) * steeringGearRatio));
+		values.put("wheel_angle_kA", Math.max(0, average(kA[STEER]) * steeringGearRatio));
+		return values;
+	}
+
+	/**
+	 * Save the values of {@link #getConfigValues()} to the local config file.
+	 * They take effect when the file is reloaded
+	 */
+	public void save() {
+		for (Map.Entry<String, Double> e : getConfigValues().entrySet()) {
+			BIGData.putLocalConfig(e.getKey(), e.getValue());
+		}
+		BIGData.updateLocalConfigFile();
+	}
+
+	private static double average(double[] values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum / values.length;
+	}
+}
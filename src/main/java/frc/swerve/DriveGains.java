@@ -0,0 +1,38 @@
+package frc.swerve;
+
+import frc.gen.BIGData;
+
+/**
+ * Gains for the velocity PIDF loop that runs on each drive motor controller,
+ * in the units of {@link DriveMotor#setPIDF}, and the feedforward volts added
+ * to its output for spinning the wheel.
+ */
+public class DriveGains {
+	/** the config keys the gains are read from */
+	public static final String[] KEYS = { "drive_velocity_kP", "drive_velocity_kI", "drive_velocity_kD",
+			"drive_velocity_kF", "drive_kS", "drive_kA" };
+
+	public final double kP;
+	public final double kI;
+	public final double kD;
+	public final double kF;
+	/** volts to overcome friction while the wheel spins */
+	public final double kS;
+	/** volts per rad/s^2 of wheel acceleration */
+	public final double kA;
+
+	public DriveGains(double kP, double kI, double kD, double kF, double kS, double kA) {
+		this.kP = kP;
+		this.kI = kI;
+		this.kD = kD;
+		this.kF = kF;
+		this.kS = kS;
+		this.kA = kA;
+	}
+
+	/** read the gains from "drive_velocity_kP/kI/kD/kF" and "drive_kS/kA" */
+	public static DriveGains fromBIGData() {
+		return new DriveGains(BIGData.getDouble(KEYS[0]), BIGData.getDouble(KEYS[1]), BIGData.getDouble(KEYS[2]),
+				BIGData.getDouble(KEYS[3]), BIGData.getDouble(KEYS[4]), BIGData.getDouble(KEYS[5]));
+	}
+}
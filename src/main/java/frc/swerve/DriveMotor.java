@@ -0,0 +1,30 @@
+package frc.swerve;
+
+/** One of the two motors that drive a differential swerve module */
+public interface DriveMotor {
+	/** run the motor's closed loop velocity controller at the given speed, in radians/sec */
+	default void setVelocity(double velocity) {
+		setVelocity(velocity, 0);
+	}
+
+	/**
+	 * run the motor's closed loop velocity controller at the given speed, in
+	 * radians/sec, adding feedforward volts to the controller's output
+	 */
+	void setVelocity(double velocity, double feedforward);
+
+	/** drive the motor open loop at the given voltage, until the next setVelocity */
+	void setVoltage(double volts);
+
+	/** get the voltage the motor controller is applying to the motor */
+	double getAppliedVoltage();
+
+	/** get the speed of the motor shaft, in radians/sec */
+	double getVelocity();
+
+	/** get the position of the motor shaft, in radians */
+	double getPosition();
+
+	/** set the gains of the motor's closed loop velocity controller */
+	void setPIDF(double kP, double kI, double kD, double kF);
+}
@@ -0,0 +1,244 @@
+package frc.swerve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.util.LoopTimer;
+
+/**
+ * Runs a set of tasks at a fixed rate on a small number of threads. Deadlines
+ * are computed from System.nanoTime() as start + n * period, so lateness in one
+ * iteration does not push back the ones after it. Tasks are split round-robin
+ * between the threads, and each thread runs all of its tasks back to back every
+ * period. Every task is timed with its own {@link LoopTimer}.
+ * <p>
+ * {@link #wake()} runs the next iteration right away instead of at its
+ * deadline, and the deadlines after it are counted from then. This lets a loop
+ * react to new input as soon as it arrives, while still running at least once
+ * a period if no input comes.
+ * </p>
+ * <p>
+ * This class doesn't use any robot hardware, so it runs the same way in a
+ * desktop simulation as on the roboRIO.
+ * </p>
+ */
+public class LoopScheduler {
+	/** name of the loop, used to name its threads */
+	private final String name;
+	/** loop period, in nanoseconds */
+	private final long periodNanos;
+	private final Worker[] workers;
+	private int nextWorker;
+	private volatile boolean running;
+
+	/**
+	 * @param name    the name of the loop
+	 * @param period  the period of the loop, in seconds
+	 * @param threads the number of threads to split the tasks between
+	 */
+	public LoopScheduler(String name, double period, int threads) {
+		this.name = name;
+		this.periodNanos = (long) (period * 1e9);
+		workers = new Worker[Math.max(threads, 1)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker();
+		}
+	}
+
+	/**
+	 * Add a task to run every period. Tasks must be added before start()
+	 * 
+	 * @param taskName the name of the LoopTimer for the task
+	 * @param task     the task to run
+	 * @return the LoopTimer that times the task
+	 */
+	public synchronized LoopTimer add(String taskName, Runnable task) {
+		return add(new LoopTimer(taskName, getPeriod()), task);
+	}
+
+	/**
+	 * Add a task to run every period, timed by an existing LoopTimer. Tasks must
+	 * be added before start()
+	 * 
+	 * @return the timer
+	 */
+	public synchronized LoopTimer add(LoopTimer timer, Runnable task) {
+		if (running) {
+			throw new IllegalStateException("cannot add a task to " + name + " while it is running");
+		}
+		workers[nextWorker].tasks.add(task);
+		workers[nextWorker].timers.add(timer);
+		nextWorker = (nextWorker + 1) % workers.length;
+		return timer;
+	}
+
+	/** start running the tasks */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		long firstDeadline = System.nanoTime();
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].start(name + "-" + i, firstDeadline);
+		}
+	}
+
+	/** stop running the tasks, waiting for the current iterations to finish */
+	public synchronized void stop() {
+		running = false;
+		for (Worker w : workers) {
+			w.join();
+		}
+	}
+
+	/**
+	 * Run the next iteration now, rather than waiting for its deadline. If an
+	 * iteration is already running, the next one starts as soon as it finishes.
+	 * Safe to call from any thread, and doesn't block.
+	 */
+	public void wake() {
+		for (Worker w : workers) {
+			w.wake();
+		}
+	}
+
+	/** get the loop period, in seconds */
+	public double getPeriod() {
+		return periodNanos / 1e9;
+	}
+
+	/** get the number of threads this loop runs on */
+	public int getThreadCount() {
+		return workers.length;
+	}
+
+	/** get the timing statistics for one of this loop's threads */
+	public Worker getWorker(int i) {
+		return workers[i];
+	}
+
+	/**
+	 * One of the threads of the loop, along with its timing statistics. The
+	 * statistics are written by the loop thread and can be read from any thread.
+	 */
+	public class Worker {
+		private final List<Runnable> tasks = new ArrayList<Runnable>();
+		private final List<LoopTimer> timers = new ArrayList<LoopTimer>();
+		private volatile Thread thread;
+		/** set by wake() to run the next iteration without waiting for its deadline */
+		private volatile boolean woken;
+
+		private volatile long iterations;
+		private volatile long overruns;
+		private volatile long lastPeriodNanos;
+		private volatile long lastJitterNanos;
+		private volatile long maxJitterNanos;
+
+		private void start(String threadName, long firstDeadline) {
+			Runnable[] taskArray = tasks.toArray(new Runnable[0]);
+			LoopTimer[] timerArray = timers.toArray(new LoopTimer[0]);
+			thread = new Thread(() -> run(taskArray, timerArray, firstDeadline), threadName);
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MAX_PRIORITY);
+			thread.start();
+		}
+
+		private void wake() {
+			woken = true;
+			Thread t = thread;
+			if (t != null) {
+				LockSupport.unpark(t);
+			}
+		}
+
+		private void join() {
+			if (thread == null) {
+				return;
+			}
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+
+		private void run(Runnable[] taskArray, LoopTimer[] timerArray, long firstDeadline) {
+			long deadline = firstDeadline;
+			long lastStart = firstDeadline;
+			while (running) {
+				// wait for the deadline or a wake(). parkNanos can return early, so check again
+				long remaining;
+				while (!woken && (remaining = deadline - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(remaining);
+					if (!running) {
+						return;
+					}
+				}
+				long start = System.nanoTime();
+				if (woken) {
+					// count this iteration's deadline, and the ones after it, from now
+					woken = false;
+					if (start < deadline) {
+						deadline = start;
+					}
+				}
+				lastJitterNanos = start - deadline;
+				if (lastJitterNanos > maxJitterNanos) {
+					maxJitterNanos = lastJitterNanos;
+				}
+				lastPeriodNanos = start - lastStart;
+				lastStart = start;
+
+				long taskStart = start;
+				for (int i = 0; i < taskArray.length; i++) {
+					try {
+						taskArray[i].run();
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+					long taskEnd = System.nanoTime();
+					timerArray[i].record(deadline, taskStart, taskEnd);
+					taskStart = taskEnd;
+				}
+				iterations++;
+
+				deadline += periodNanos;
+				long late = System.nanoTime() - deadline;
+				if (late > 0) {
+					// we missed at least one deadline, skip to the next one in the future
+					overruns++;
+					deadline += (late / periodNanos + 1) * periodNanos;
+				}
+			}
+		}
+
+		/** get the number of iterations this thread has run */
+		public long getIterations() {
+			return iterations;
+		}
+
+		/** get the number of iterations that ran past their next deadline */
+		public long getOverruns() {
+			return overruns;
+		}
+
+		/** get the time between the starts of the last two iterations, in seconds */
+		public double getLastPeriod() {
+			return lastPeriodNanos / 1e9;
+		}
+
+		/** get how late the last iteration started, in seconds */
+		public double getLastJitter() {
+			return lastJitterNanos / 1e9;
+		}
+
+		/** get the latest any iteration has started, in seconds */
+		public double getMaxJitter() {
+			return maxJitterNanos / 1e9;
+		}
+	}
+}
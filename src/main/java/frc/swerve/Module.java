@@ -2,36 +2,28 @@ package frc.swerve;
 
 import static frc.util.GRTUtil.TWO_PI;
 
-import com.revrobotics.CANEncoder;
-import com.revrobotics.CANPIDController;
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.ControlType;
-import com.revrobotics.CANSparkMax.IdleMode;
-import com.revrobotics.CANSparkMaxLowLevel.MotorType;
-
-import edu.wpi.first.wpilibj.AnalogEncoder;
-import edu.wpi.first.wpilibj.AnalogInput;
-import edu.wpi.first.wpilibj.controller.ProfiledPIDController;
 import edu.wpi.first.wpilibj.drive.Vector2d;
 import edu.wpi.first.wpilibj.trajectory.TrapezoidProfile;
 import frc.gen.BIGData;
+import frc.util.Clock;
 import frc.util.GRTUtil;
+import frc.util.TelemetryLog;
 
-class Module {
-	// motor controllers for neos in the swerve module
-	private CANSparkMax sparkMax1;
-	private CANSparkMax sparkMax2;
-	// PID controllers for neos
-	private CANPIDController pidMotor1;
-	private CANPIDController pidMotor2;
-	// encoders for each neo motor
-	private CANEncoder driveEncoder1;
-	private CANEncoder driveEncoder2;
-	// whether the motors should be inverted
-	private boolean invertMotor1;
-	private boolean invertMotor2;
+/**
+ * A differential swerve module. Call {@link #doPIDCalc()} about every
+ * {@link Swerve#MODULE_LOOP_PERIOD} to drive the module to the state
+ * requested with {@link #set(double, double)}. Each call measures the time
+ * since the last one, so calls don't have to be evenly spaced. When several
+ * modules should be desaturated together, call {@link #calculate()} on every
+ * module, then {@link #applySpeeds(double)} with the smallest
+ * {@link #getSpinScale()}.
+ */
+public class Module {
+	// the two neos in the swerve module
+	private DriveMotor motor1;
+	private DriveMotor motor2;
 	/** encoder with the rotation of the wheel (direction its pointing) */
-	private AnalogEncoder rotateEncoder;
+	private AzimuthEncoder rotateEncoder;
 	/**
 	 * client requested wheel angle, in radians, where 0 is the 0 position of the
 	 * rotateEncoder. this value will always be between 0 and 2pi
@@ -40,11 +32,16 @@ class Module {
 	/** client requested wheel spin speed, in radians/sec */
 	private volatile double reqSpinSpeed;
 	/** PID controller for the angle of the wheel (aka direction its pointing) */
-	private ProfiledPIDController pidWheelAngle;
-
-	/** Thread to run the PID loop for wheel angle */
-	private Thread anglePIDThread;
-	private final int ANGLE_PID_TIMING = 5;
+	private ProfiledPID pidWheelAngle;
+	/**
+	 * gains to use for the wheel angle and drive motors. These are replaced as a
+	 * whole by other threads, and applied at the start of the next calculate()
+	 */
+	private volatile WheelAngleGains angleGains;
+	private volatile DriveGains driveGains;
+	/** the gains currently in use, only touched by the module loop */
+	private WheelAngleGains appliedAngleGains;
+	private DriveGains appliedDriveGains;
 
 	/** name of the module (e.g. "fr", "br", etc) */
 	private String name;
@@ -55,6 +52,47 @@ class Module {
 	/** whether we are currently in "reversed mode". this is a state variable 
 	 * used so we turn the shortest amount when changing the wheel angle. */
 	private boolean reversed;
+	/** the goal of pidWheelAngle, in rotations */
+	private double goalPosition;
+	/**
+	 * whether the next calculate() should start pidWheelAngle over from the wheel's
+	 * azimuth, e.g. when the encoder was zeroed
+	 */
+	private volatile boolean angleLoopReset = true;
+	/**
+	 * the wheel is only turned the other way (and reversed) when that is faster by
+	 * at least the time to turn this many rotations
+	 */
+	private static final double REVERSE_HYSTERESIS = 10.0 / 360;
+	/** limits on the measured time between calculate() calls, in seconds */
+	private static final double MIN_DT = 0.0005;
+	private static final double MAX_DT = 4 * Swerve.MODULE_LOOP_PERIOD;
+
+	/** (rad/s) motor speed that goes towards changing the azimuth, from the last calculate() */
+	private double motorSteerSpeed;
+	/** (rad/s) motor speed that goes towards spinning the wheel, from the last calculate() */
+	private double motorSpinSpeed;
+	/** (V) voltage added to both motors to turn the ring gear, from the last calculate() */
+	private double steerFeedforward;
+	/** (rad/s) motor speed that spun the wheel at the last applySpeeds() */
+	private double lastSpin;
+	/** Clock.nanoTime() of the last calculate(), or 0 if the angle loop was just reset */
+	private long lastCalculateTime;
+	/** seconds between the last two calculate() calls */
+	private double dt = Swerve.MODULE_LOOP_PERIOD;
+	/** velocity of the profile's setpoint at the last calculate(), in radians/sec */
+	private double lastSetpointVelocity;
+	/** (rad/s) velocities sent to the motors by the last applySpeeds() */
+	private double motor1Setpoint;
+	private double motor2Setpoint;
+
+	/**
+	 * names of the columns {@link #logTelemetry(TelemetryLog, int)} writes, to be
+	 * prefixed with the module's name
+	 */
+	public static final String[] TELEMETRY_COLUMNS = { "req_angle", "req_speed", "reversed", "azimuth",
+			"motor1_position", "motor2_position", "motor1_velocity", "motor2_velocity", "steer_speed",
+			"spin_speed", "motor1_setpoint", "motor2_setpoint", "steer_feedforward" };
 
     /** ticks per rotation (this is for the rotateEncoder) */
 	private final int TICKS_PER_ROTATION;
@@ -64,34 +102,39 @@ class Module {
 	private final double DRIVE_GEAR_RATIO;
 	/** maximum motor speed, in radians per second */ 
 	private final double MAX_MOTOR_SPEED; 
+	/** how fast the wheel can change its spin speed, in radians/sec^2 */
+	private final double WHEEL_MAX_ACCELERATION;
 
 	/**
 	 * @param name the name of the module ("fr", "br", etc)
 	 * @param xPos the x position of the module relative to the center of the robot, in meters
 	 * @param yPos the y position of the module relative to the center of the robot, in meters
+	 * @param hardware creates the motors and encoder for this module
 	 */
-	public Module(String name, double xPos, double yPos) {
+	public Module(String name, double xPos, double yPos, SwerveHardware hardware) {
+		this(name, xPos, yPos, hardware, WheelAngleGains.fromBIGData());
+	}
+
+	/**
+	 * @param name the name of the module ("fr", "br", etc)
+	 * @param xPos the x position of the module relative to the center of the robot, in meters
+	 * @param yPos the y position of the module relative to the center of the robot, in meters
+	 * @param hardware creates the motors and encoder for this module
+	 * @param angleGains gains for the wheel azimuth loop
+	 */
+	public Module(String name, double xPos, double yPos, SwerveHardware hardware, WheelAngleGains angleGains) {
 		this.name = name;
 		this.modulePosition = new Vector2d(xPos, yPos);
-        // instantiate motor controllers
-        sparkMax1 = new CANSparkMax(BIGData.getInt(name + "_drive1"), MotorType.kBrushless);
-		sparkMax2 = new CANSparkMax(BIGData.getInt(name + "_drive2"), MotorType.kBrushless);
-		// set up motor PID controllers
-		pidMotor1 = sparkMax1.getPIDController();
-		pidMotor2 = sparkMax2.getPIDController();
-		configDrivePID(pidMotor1);
-		configDrivePID(pidMotor2);
-        // instantiate encoders for each neo
-        driveEncoder1 = sparkMax1.getEncoder();
-		driveEncoder2 = sparkMax2.getEncoder();
-		// determine whether motors should be inverted
-		invertMotor1 = BIGData.getBoolean(name + "_invert_motor1");
-		invertMotor2 = BIGData.getBoolean(name + "_invert_motor2");
-		sparkMax1.setInverted(invertMotor1);
-		sparkMax2.setInverted(invertMotor2);
-
-        // instantiate encoder for wheel azimuth
-        rotateEncoder = new AnalogEncoder(new AnalogInput(0));
+		// instantiate motors
+		motor1 = hardware.createDriveMotor(name, 1);
+		motor2 = hardware.createDriveMotor(name, 2);
+		driveGains = DriveGains.fromBIGData();
+		appliedDriveGains = driveGains;
+		configDrivePID(motor1, appliedDriveGains);
+		configDrivePID(motor2, appliedDriveGains);
+
+		// instantiate encoder for wheel azimuth
+		rotateEncoder = hardware.createAzimuthEncoder(name);
 		TICKS_PER_ROTATION = BIGData.getInt("swerve_azimuth_encoder_ticks");
 
 		// gear ratio between motor and wheel's axle
@@ -100,97 +143,208 @@ class Module {
 		
 		// maximum motor speed in radians/sec
 		MAX_MOTOR_SPEED = BIGData.getDouble("swerve_max_motor_speed");
+		WHEEL_MAX_ACCELERATION = BIGData.getDouble("swerve_wheel_max_acceleration");
 
 		// set up PID loop responsible for driving wheel azimuth to 0
-		pidWheelAngle = new ProfiledPIDController(BIGData.getDouble("wheel_angle_kP"), 
-			BIGData.getDouble("wheel_angle_kI"), BIGData.getDouble("wheel_angle_kD"), new TrapezoidProfile.Constraints(1, 1), 2);
-
-        configDriveMotor(sparkMax1);
-		configDriveMotor(sparkMax2);
-		
-		// start thread for wheel angle PID loop
-		anglePIDThread = new Thread(this::runAnglePID);
-		anglePIDThread.start();
+		pidWheelAngle = new ProfiledPID(angleGains.kP, angleGains.kI, angleGains.kD,
+			new TrapezoidProfile.Constraints(angleGains.maxVelocity, angleGains.maxAcceleration));
+		this.angleGains = angleGains;
+		appliedAngleGains = angleGains;
 	}
 
 	/** Zeroes the wheel by updating the offset, and returns the new offset */
 	public void zero() {
         rotateEncoder.reset();
+        resetAngleLoop();
     }
 
-    /** Function that contains a loop that runs PID calculations for wheel azimuth
-	 * (at about 3 to 4 times faster than the swerve loop). Runs in a separate thread */
-    private void runAnglePID() {
-		long prevTime = System.currentTimeMillis();
-		try {
-			while (true) {
-				doPIDCalc();
-				while (System.currentTimeMillis() < prevTime + ANGLE_PID_TIMING) {
-					Thread.sleep(1);
-				}
-				prevTime = System.currentTimeMillis();
-			}
-		} catch (InterruptedException e) {}
+	/** Calculate the module's speeds and send them to the motors, desaturating
+	 * this module on its own. */
+	public void doPIDCalc() {
+		calculate();
+		applySpeeds(getSpinScale());
 	}
 
 	/** Calculate what speed the module should rotate at and what speed the 
-	 * wheel should spin at from PID and trapezoidal profile calculations, 
-	 * then set the motor speeds to the motors by calling setModuleSpeeds */
-	private void doPIDCalc() {
-		// current and target positions in rotations (for simpler calculations)
-		double currentPosition = GRTUtil.positiveMod(rotateEncoder.get(), 1.0);
-		double targetPosition = reqWheelAngle / TWO_PI;
-
-		// below is code for turning the shortest distance to an angle (like 30 degrees instead of 330)
-		// we are always be able to turn less than or equal to 90 deg to a target position
-		boolean goalChanged = false; // whether targetPosition was changed
-		double error = currentPosition - targetPosition;
-		if (Math.abs(error) > 0.5) {
-			// if the current values are more than half a rotation apart, move targetPosition 
-			// one rotation closer to currentPosition so it is within half a rotation apart
-			targetPosition += Math.signum(error);
-			goalChanged = true;
+	 * wheel should spin at from PID and trapezoidal profile calculations. 
+	 * The speeds are sent to the motors by applySpeeds.
+	 * This is run by the swerve module loop, about 4 times faster than the swerve loop */
+	public void calculate() {
+		applyGains();
+		long now = Clock.nanoTime();
+		if (angleLoopReset) {
+			angleLoopReset = false;
+			pidWheelAngle.reset(rotateEncoder.get() * TWO_PI);
+			lastSetpointVelocity = 0;
+			lastCalculateTime = 0;
+			// pick the goal again below
+			goalPosition = Double.NaN;
 		}
-		error = currentPosition - targetPosition;
-		if (Math.abs(error) > 0.25) {
-			// move targetPosition a half rotation closer to currentPosition if necessary
-			targetPosition += Math.signum(error) * 0.5;
-			// at targetPosition, we'll need to reverse our spin direction
-			reversed = true;
-			goalChanged = true;
-		} else {
-			reversed = false;
+		// the loop is woken early in pipeline mode, and can run late. Limit dt so a
+		// call right after another doesn't divide by almost nothing, and a stall
+		// doesn't jump the profile ahead
+		dt = lastCalculateTime == 0 ? Swerve.MODULE_LOOP_PERIOD
+				: Math.min(Math.max((now - lastCalculateTime) / 1e9, MIN_DT), MAX_DT);
+		lastCalculateTime = now;
+		// current and target positions in rotations (for simpler calculations). The
+		// encoder wraps around every rotation but the profile doesn't, so measure the
+		// wheel in the same rotation as the profile's setpoint
+		double setpointPosition = pidWheelAngle.getSetpoint().position / TWO_PI;
+		double currentPosition = setpointPosition + Math.IEEEremainder(rotateEncoder.get() - setpointPosition, 1.0);
+		// the requested angle within half a rotation of the wheel (like 30 degrees instead of 330)
+		double requestedPosition = reqWheelAngle / TWO_PI;
+		double targetPosition = requestedPosition + Math.rint(currentPosition - requestedPosition);
+		// the wheel can also point the opposite way and spin backwards
+		double flippedPosition = targetPosition - Math.copySign(0.5, targetPosition - currentPosition);
+
+		// pick whichever way gets the wheel there sooner, counting the time to change the
+		// wheel's speed. Only change ways when the other is clearly better, so the module
+		// doesn't flip back and forth when the request is near 90 degrees away
+		double wheelVelocity = getWheelVelocity();
+		double straightCost = plannedTime(targetPosition - currentPosition, reqSpinSpeed, wheelVelocity);
+		double flippedCost = plannedTime(flippedPosition - currentPosition, -reqSpinSpeed, wheelVelocity);
+		double hysteresis = turnTime(REVERSE_HYSTERESIS);
+		if (reversed ? straightCost + hysteresis < flippedCost : flippedCost + hysteresis < straightCost) {
+			reversed = !reversed;
+		}
+		if (reversed) {
+			targetPosition = flippedPosition;
 		}
 		// if our targetPosition (goal) changed, update the goal for the PID controller
-		if (goalChanged) {
+		if (targetPosition != goalPosition) {
+			goalPosition = targetPosition;
 			pidWheelAngle.setGoal(targetPosition * TWO_PI);
 		}
 
-		double steerSpeed = pidWheelAngle.calculate(currentPosition * TWO_PI);
-		setModuleSpeeds(steerSpeed, reqSpinSpeed * (reversed ? -1 : 1));
+		double steerSpeed = pidWheelAngle.calculate(currentPosition * TWO_PI, dt);
+		// only drive as much as the wheel points the right way, so it doesn't drag sideways
+		double spinSpeed = reqSpinSpeed * (reversed ? -1 : 1) * spinFactor(targetPosition - currentPosition);
+		WheelAngleGains gains = appliedAngleGains;
+		if (gains.feedforward) {
+			// follow the profile instead of waiting for the PID to see it fall behind
+			double velocity = pidWheelAngle.getSetpoint().velocity;
+			double acceleration = (velocity - lastSetpointVelocity) / dt;
+			lastSetpointVelocity = velocity;
+			steerSpeed += velocity - gains.spinCoupling * spinSpeed;
+			steerFeedforward = gains.kS * Math.signum(velocity) + gains.kV * velocity + gains.kA * acceleration;
+		} else {
+			steerFeedforward = 0;
+		}
+		setModuleSpeeds(steerSpeed, spinSpeed);
+	}
+
+	/**
+	 * Estimate how long it takes to turn the wheel and bring it to a spin speed,
+	 * with the spin scaled by {@link #spinFactor(double)} while it turns
+	 * @param turn the rotations to turn the wheel
+	 * @param spinSpeed the spin speed once the wheel has turned, in radians/sec
+	 * @param wheelVelocity the current spin speed of the wheel, in radians/sec
+	 * @return the time, in seconds
+	 */
+	private double plannedTime(double turn, double spinSpeed, double wheelVelocity) {
+		// the wheel goes from its current speed to the scaled speed, then up to the full speed
+		double scaled = spinSpeed * spinFactor(turn);
+		double speedChange = Math.abs(scaled - wheelVelocity) + Math.abs(spinSpeed - scaled);
+		return turnTime(Math.abs(turn)) + speedChange / WHEEL_MAX_ACCELERATION;
+	}
+
+	/**
+	 * get the time the wheel angle profile takes to turn the wheel from rest to rest
+	 * @param rotations the distance to turn, in rotations
+	 */
+	private double turnTime(double rotations) {
+		double distance = rotations * TWO_PI;
+		double v = appliedAngleGains.maxVelocity;
+		double a = appliedAngleGains.maxAcceleration;
+		if (distance * a < v * v) {
+			// the profile never reaches its maximum velocity
+			return 2 * Math.sqrt(distance / a);
+		}
+		return distance / v + v / a;
+	}
+
+	/**
+	 * get the fraction of the spin speed to use while the wheel is turned away from
+	 * its target: the part of the wheel's velocity in the direction of the target
+	 * @param error the angle between the wheel and its target, in rotations
+	 */
+	private static double spinFactor(double error) {
+		return Math.max(0, Math.cos(error * TWO_PI));
 	}
 
     /**
-     * Set this module's rotation and translation speeds.
+     * Set this module's rotation and translation speeds, to be sent to the motors by applySpeeds.
      * @param steerSpeed the speed to turn the module at (change the azimuth of the wheel) in radians/sec
      * @param spinSpeed the speed to spin the wheel at in radians/sec
      */
     private void setModuleSpeeds(double steerSpeed, double spinSpeed) {
 		// (rad/s) the portion of the motors' rotation that goes towards changing the azimuth of the wheel
-		double motorSteerSpeed = steerSpeed * STEERING_GEAR_RATIO;
+		motorSteerSpeed = steerSpeed * STEERING_GEAR_RATIO;
 		// (rad/s) the portion of the motors' rotation that goes towards spinning the axle of the wheel (translation)
-		double motorSpinSpeed = spinSpeed * DRIVE_GEAR_RATIO;
-		// one motor will spin at motorSteerSpeed + motorSpinSpeed, the other will spin at motorSteerSpeed - motorSpinSpeed because math
-		// if the speeds will be too fast for the motors, scale down
-		if (Math.abs(motorSteerSpeed) + Math.abs(motorSpinSpeed) > MAX_MOTOR_SPEED) {
-			double scaleDown = MAX_MOTOR_SPEED / (Math.abs(motorSteerSpeed) + Math.abs(motorSpinSpeed));
-			motorSteerSpeed *= scaleDown;
-			motorSpinSpeed *= scaleDown;
+		motorSpinSpeed = spinSpeed * DRIVE_GEAR_RATIO;
+		// steering alone can't be faster than the motors
+		if (Math.abs(motorSteerSpeed) > MAX_MOTOR_SPEED) {
+			motorSteerSpeed = Math.copySign(MAX_MOTOR_SPEED, motorSteerSpeed);
 		}
-		pidMotor1.setReference(motorSteerSpeed + motorSpinSpeed, ControlType.kVelocity);
-		pidMotor2.setReference(motorSteerSpeed - motorSpinSpeed, ControlType.kVelocity);
     }
 
+	/**
+	 * Get the factor the spin speed from the last calculate() must be scaled by so
+	 * neither motor goes faster than the maximum motor speed. Steering gets the
+	 * motor speed it needs first, and spin gets what is left over.
+	 * @return the scale factor, between 0 and 1
+	 */
+	public double getSpinScale() {
+		double spin = Math.abs(motorSpinSpeed);
+		// one motor will spin at motorSteerSpeed + motorSpinSpeed, the other will spin at motorSteerSpeed - motorSpinSpeed because math
+		double available = MAX_MOTOR_SPEED - Math.abs(motorSteerSpeed);
+		if (spin <= available) {
+			return 1;
+		}
+		return Math.max(available, 0) / spin;
+	}
+
+	/**
+	 * Send the speeds from the last calculate() to the motors.
+	 * @param spinScale factor to scale the spin speed by. To keep the chassis moving
+	 * in the requested direction, every module should use the same factor
+	 */
+	public void applySpeeds(double spinScale) {
+		double spin = motorSpinSpeed * spinScale;
+		motor1Setpoint = motorSteerSpeed + spin;
+		motor2Setpoint = motorSteerSpeed - spin;
+		// drive_velocity_kF covers the wheel's kV, the motors spin the wheel in opposite directions
+		DriveGains gains = appliedDriveGains;
+		double wheelAcceleration = (spin - lastSpin) / DRIVE_GEAR_RATIO / dt;
+		lastSpin = spin;
+		double spinFeedforward = gains.kS * Math.signum(spin) + gains.kA * wheelAcceleration;
+		// both motors turn the ring gear, so both get the steering feedforward
+		motor1.setVelocity(motor1Setpoint, steerFeedforward + spinFeedforward);
+		motor2.setVelocity(motor2Setpoint, steerFeedforward - spinFeedforward);
+	}
+
+	/**
+	 * Write this module's state to the current row of a telemetry log, in the
+	 * order of {@link #TELEMETRY_COLUMNS}. Call from the module loop, after
+	 * applySpeeds()
+	 * @param column the column to write the first value to
+	 */
+	public void logTelemetry(TelemetryLog log, int column) {
+		log.set(column, reqWheelAngle);
+		log.set(column + 1, reqSpinSpeed);
+		log.set(column + 2, reversed);
+		log.set(column + 3, getAzimuth());
+		log.set(column + 4, motor1.getPosition());
+		log.set(column + 5, motor2.getPosition());
+		log.set(column + 6, motor1.getVelocity());
+		log.set(column + 7, motor2.getVelocity());
+		log.set(column + 8, motorSteerSpeed);
+		log.set(column + 9, motorSpinSpeed);
+		log.set(column + 10, motor1Setpoint);
+		log.set(column + 11, motor2Setpoint);
+		log.set(column + 12, steerFeedforward);
+	}
+
 	/** Set the speed and angle of this module
 	 * @param radians The angle(radians) of the module to set, relative to the zero position of the rotation encoder
 	 * @param speed The speed to spin the wheel at, in radians/sec
@@ -221,21 +375,122 @@ class Module {
 		return modulePosition.y;
 	}
 
+	/**
+	 * Get the azimuth of the wheel from the azimuth encoder, relative to its zero position
+	 * @return the azimuth, in radians
+	 */
+	public double getAzimuth() {
+		return rotateEncoder.get() * TWO_PI;
+	}
+
+	/**
+	 * Get the rate the wheel's azimuth is changing, from the drive encoders. The ring
+	 * gear is turned by the sum of the two motors
+	 * @return the azimuth rate, in radians/sec
+	 */
+	public double getAzimuthRate() {
+		return (motor1.getVelocity() + motor2.getVelocity()) / 2 / STEERING_GEAR_RATIO;
+	}
+
+	/**
+	 * Get how far the wheel has turned about its axle, from the drive encoders. The wheel
+	 * is turned by the difference of the two motors
+	 * @return the wheel rotation, in radians
+	 */
+	public double getWheelRotation() {
+		return (motor1.getPosition() - motor2.getPosition()) / 2 / DRIVE_GEAR_RATIO;
+	}
+
+	/**
+	 * Get the spin speed of the wheel, from the drive encoders
+	 * @return the wheel speed, in radians/sec
+	 */
+	public double getWheelVelocity() {
+		return (motor1.getVelocity() - motor2.getVelocity()) / 2 / DRIVE_GEAR_RATIO;
+	}
+
+	/**
+	 * Start the wheel angle loop over from the wheel's azimuth at the next
+	 * calculate(), e.g. after the wheel was turned by something else. Safe to
+	 * call from any thread
+	 */
+	void resetAngleLoop() {
+		angleLoopReset = true;
+	}
+
+	/**
+	 * Drive the motors open loop, bypassing calculate(), until the next applySpeeds().
+	 * The common voltage turns the ring gear and the differential voltage spins the wheel
+	 * @param common volts applied to both motors
+	 * @param differential volts added to motor 1 and subtracted from motor 2
+	 */
+	void setVoltages(double common, double differential) {
+		motor1.setVoltage(common + differential);
+		motor2.setVoltage(common - differential);
+	}
+
+	/** get the average of the voltages the two motors are applying, in volts */
+	double getCommonVoltage() {
+		return (motor1.getAppliedVoltage() + motor2.getAppliedVoltage()) / 2;
+	}
+
+	/** get half the difference of the voltages the two motors are applying, in volts */
+	double getDifferentialVoltage() {
+		return (motor1.getAppliedVoltage() - motor2.getAppliedVoltage()) / 2;
+	}
+
+	/** get the average of the two motors' positions, the part that turns the ring gear, in radians */
+	double getCommonPosition() {
+		return (motor1.getPosition() + motor2.getPosition()) / 2;
+	}
+
+	/** get the average of the two motors' velocities, the part that turns the ring gear, in radians/sec */
+	double getCommonVelocity() {
+		return (motor1.getVelocity() + motor2.getVelocity()) / 2;
+	}
+
+	/** get half the difference of the two motors' velocities, the part that spins the wheel, in radians/sec */
+	double getDifferentialVelocity() {
+		return (motor1.getVelocity() - motor2.getVelocity()) / 2;
+	}
+
+	/**
+	 * Use new gains for the wheel angle loop. They take effect at the start of the
+	 * next calculate(), so no iteration runs with part of the old gains and part
+	 * of the new ones. Safe to call from any thread.
+	 */
+	public void setAngleGains(WheelAngleGains gains) {
+		angleGains = gains;
+	}
+
+	/**
+	 * Use new gains for the drive motors' velocity loops. They are sent to the
+	 * motor controllers at the start of the next calculate(). Safe to call from
+	 * any thread.
+	 */
+	public void setDriveGains(DriveGains gains) {
+		driveGains = gains;
+	}
+
+	/** apply gains set since the last call */
+	private void applyGains() {
+		WheelAngleGains angle = angleGains;
+		if (angle != appliedAngleGains) {
+			pidWheelAngle.setPID(angle.kP, angle.kI, angle.kD);
+			pidWheelAngle.setConstraints(new TrapezoidProfile.Constraints(angle.maxVelocity, angle.maxAcceleration));
+			appliedAngleGains = angle;
+		}
+		DriveGains drive = driveGains;
+		if (drive != appliedDriveGains) {
+			configDrivePID(motor1, drive);
+			configDrivePID(motor2, drive);
+			appliedDriveGains = drive;
+		}
+	}
+
 	/** set up P, I, D, F constants for the velocity PIDF loop responsible for 
 	 * keeping the motors spinning at the requested speed */
-	private void configDrivePID(CANPIDController pid) {
-		pid.setOutputRange(-0.9, 0.9);
-		pid.setP(BIGData.getDouble("drive_velocity_kP"));
-		pid.setI(BIGData.getDouble("drive_velocity_kI"));
-		pid.setD(BIGData.getDouble("drive_velocity_kD"));
-		pid.setFF(BIGData.getDouble("drive_velocity_kF"));
-	}
-
-	/** configure a drive motor for a diffy swerve module */
-	private void configDriveMotor(CANSparkMax m) {
-		m.restoreFactoryDefaults();
-		m.setIdleMode(IdleMode.kBrake);
-		m.setOpenLoopRampRate(0.1);
-		m.setClosedLoopRampRate(0.1);
+	private void configDrivePID(DriveMotor motor, DriveGains gains) {
+		motor.setPIDF(gains.kP, gains.kI, gains.kD, gains.kF);
 	}
 }
@@ -4,7 +4,7 @@ import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.wpilibj.SPI;
 
-public class NavXGyro extends AHRS {
+public class NavXGyro extends AHRS implements SwerveGyro {
 
 	public NavXGyro() {
 		super(SPI.Port.kMXP, (byte) 100);
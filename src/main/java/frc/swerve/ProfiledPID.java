@@ -0,0 +1,67 @@
+package frc.swerve;
+
+import edu.wpi.first.wpilibj.trajectory.TrapezoidProfile;
+
+/**
+ * A PID controller that follows a trapezoidal motion profile to its goal, like
+ * WPILib's ProfiledPIDController, except that every {@link #calculate} is given
+ * the time since the last one. WPILib's controller assumes a fixed period, so
+ * its profile runs ahead of the wheel when it is called early (e.g. when the
+ * module loop is woken in pipeline mode).
+ */
+class ProfiledPID {
+	private double kP, kI, kD;
+	private TrapezoidProfile.Constraints constraints;
+	private TrapezoidProfile.State goal = new TrapezoidProfile.State();
+	private TrapezoidProfile.State setpoint = new TrapezoidProfile.State();
+	/** the error of the last calculate(), for the derivative term */
+	private double lastError;
+	/** the integral of the error, in error * seconds */
+	private double totalError;
+
+	ProfiledPID(double kP, double kI, double kD, TrapezoidProfile.Constraints constraints) {
+		setPID(kP, kI, kD);
+		this.constraints = constraints;
+	}
+
+	void setPID(double kP, double kI, double kD) {
+		this.kP = kP;
+		this.kI = kI;
+		this.kD = kD;
+	}
+
+	void setConstraints(TrapezoidProfile.Constraints constraints) {
+		this.constraints = constraints;
+	}
+
+	/** set the position to reach, at rest */
+	void setGoal(double position) {
+		goal = new TrapezoidProfile.State(position, 0);
+	}
+
+	/** get the profile's setpoint from the last calculate() */
+	TrapezoidProfile.State getSetpoint() {
+		return setpoint;
+	}
+
+	/** start the profile over at rest at the given position, and clear the PID's history */
+	void reset(double position) {
+		setpoint = new TrapezoidProfile.State(position, 0);
+		lastError = 0;
+		totalError = 0;
+	}
+
+	/**
+	 * Advance the profile and get the PID output towards its new setpoint
+	 * @param measurement the current position
+	 * @param dt the time since the last call, in seconds
+	 */
+	double calculate(double measurement, double dt) {
+		setpoint = new TrapezoidProfile(constraints, goal, setpoint).calculate(dt);
+		double error = setpoint.position - measurement;
+		totalError += error * dt;
+		double derivative = (error - lastError) / dt;
+		lastError = error;
+		return kP * error + kI * totalError + kD * derivative;
+	}
+}
@@ -0,0 +1,30 @@
+package frc.swerve;
+
+import frc.gen.BIGData;
+
+/**
+ * The real swerve hardware: NEOs on SparkMaxes, analog azimuth encoders and a
+ * navX. CAN ids and inversions are read from BIGData as
+ * "&lt;module&gt;_drive1", "&lt;module&gt;_invert_motor1", etc, and the
+ * azimuth encoder's analog channel from "&lt;module&gt;_azimuth_encoder".
+ */
+public class RobotSwerveHardware implements SwerveHardware {
+
+	@Override
+	public DriveMotor createDriveMotor(String moduleName, int motor) {
+		return new SparkMaxDriveMotor(BIGData.getInt(moduleName + "_drive" + motor),
+				BIGData.getBoolean(moduleName + "_invert_motor" + motor));
+	}
+
+	@Override
+	public AzimuthEncoder createAzimuthEncoder(String moduleName) {
+		return new AnalogAzimuthEncoder(BIGData.getInt(moduleName + "_azimuth_encoder"));
+	}
+
+	@Override
+	public SwerveGyro createGyro() {
+		NavXGyro gyro = new NavXGyro();
+		gyro.reset();
+		return gyro;
+	}
+}
@@ -0,0 +1,72 @@
+package frc.swerve;
+
+import com.revrobotics.CANEncoder;
+import com.revrobotics.CANPIDController;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.ControlType;
+import com.revrobotics.CANSparkMax.IdleMode;
+import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+
+import frc.util.GRTUtil;
+
+/** A NEO driven by a SparkMax running its velocity PID loop */
+class SparkMaxDriveMotor implements DriveMotor {
+	/** converts the SparkMax's native rotations and RPM to radians and radians/sec */
+	private static final double POSITION_FACTOR = GRTUtil.TWO_PI;
+	private static final double VELOCITY_FACTOR = GRTUtil.TWO_PI / 60;
+
+	private CANSparkMax sparkMax;
+	private CANPIDController pid;
+	private CANEncoder encoder;
+
+	/**
+	 * @param id       CAN id of the SparkMax
+	 * @param inverted whether the motor should be inverted
+	 */
+	public SparkMaxDriveMotor(int id, boolean inverted) {
+		sparkMax = new CANSparkMax(id, MotorType.kBrushless);
+		sparkMax.restoreFactoryDefaults();
+		sparkMax.setIdleMode(IdleMode.kBrake);
+		sparkMax.setOpenLoopRampRate(0.1);
+		sparkMax.setClosedLoopRampRate(0.1);
+		sparkMax.setInverted(inverted);
+		pid = sparkMax.getPIDController();
+		pid.setOutputRange(-0.9, 0.9);
+		encoder = sparkMax.getEncoder();
+		encoder.setPositionConversionFactor(POSITION_FACTOR);
+		encoder.setVelocityConversionFactor(VELOCITY_FACTOR);
+	}
+
+	@Override
+	public void setVelocity(double velocity, double feedforward) {
+		pid.setReference(velocity, ControlType.kVelocity, 0, feedforward);
+	}
+
+	@Override
+	public void setVoltage(double volts) {
+		sparkMax.setVoltage(volts);
+	}
+
+	@Override
+	public double getAppliedVoltage() {
+		return sparkMax.getAppliedOutput() * sparkMax.getBusVoltage();
+	}
+
+	@Override
+	public double getVelocity() {
+		return encoder.getVelocity();
+	}
+
+	@Override
+	public double getPosition() {
+		return encoder.getPosition();
+	}
+
+	@Override
+	public void setPIDF(double kP, double kI, double kD, double kF) {
+		pid.setP(kP);
+		pid.setI(kI);
+		pid.setD(kD);
+		pid.setFF(kF);
+	}
+}
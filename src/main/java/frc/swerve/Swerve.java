@@ -1,54 +1,340 @@
 package frc.swerve;
 
+import java.io.File;
+import java.io.IOException;
+
 import edu.wpi.first.wpilibj.Notifier;
 import frc.gen.BIGData;
+import frc.gen.BooleanChannel;
+import frc.gen.DoubleChannel;
+import frc.gen.DriveCommand;
+import frc.gen.LongChannel;
+import frc.util.Clock;
 import frc.util.GRTUtil;
+import frc.util.LatencyTracer;
+import frc.util.LoopTimer;
+import frc.util.SpscSlot;
+import frc.util.TelemetryLog;
 
 public class Swerve {
-	/** scale down factor for swerve rotation */
-	private final static double ROTATE_SCALE = 0.05;
-	private NavXGyro gyro;
+	/**
+	 * scale down factor for swerve rotation. Requested velocities are wheel
+	 * speeds (radians/sec), so a requested angular velocity of w turns the
+	 * chassis at w * ROTATE_SCALE * swerve_wheel_radius radians/sec
+	 */
+	public final static double ROTATE_SCALE = 0.05;
+	/** drive commands older than this (in nanoseconds) are ignored and the robot is stopped */
+	private final static long STALE_COMMAND_NANOS = 100_000_000L;
+	private SwerveGyro gyro;
 	/** array of swerve modules */
 	private Module[] modules;
+	/** period of the loop that runs the wheel angle PID for every module, in seconds */
+	public final static double MODULE_LOOP_PERIOD = 0.005;
+	/** inverse kinematics for the module positions */
+	private SwerveKinematics kinematics;
+	/** loop that runs the wheel angle PID for every module */
+	private LoopScheduler moduleLoop;
+	/** estimates the robot's pose, updated every module loop */
+	private SwervePoseEstimator poseEstimator;
+	/** period of the swerve loop, in seconds */
+	public final static double SWERVE_LOOP_PERIOD = 0.02;
+	private final LoopTimer swerveTimer = new LoopTimer("swerve", SWERVE_LOOP_PERIOD);
+	/**
+	 * whether swerve runs as a pipeline: each drive request wakes the swerve
+	 * loop, and each swerve update wakes the module loop. Both loops still run
+	 * at their periods when nothing wakes them
+	 */
+	private final boolean pipeline;
+	/** runs the swerve loop in pipeline mode */
+	private LoopScheduler swerveLoop;
+	/** setpoints from the swerve loop to the module loop */
+	private final SpscSlot<ModuleSetpoints> setpoints;
+
+	/** the angle and speed of every module, from one swerve update */
+	private static class ModuleSetpoints {
+		final double[] angles;
+		final double[] speeds;
+
+		ModuleSetpoints(int modules) {
+			angles = new double[modules];
+			speeds = new double[modules];
+		}
+	}
+
+	/** bytes all the telemetry logs on the robot may use together, a small part of the roboRIO's flash */
+	private final static long TELEMETRY_BUDGET = 64L << 20;
+	/** names of the chassis columns of the telemetry log, before the module columns */
+	private final static String[] TELEMETRY_COLUMNS = { "gyro_angle", "pose_x", "pose_y", "pose_heading" };
+	/** records the state of every module each module loop, or null if not logging */
+	private TelemetryLog telemetry;
+	/** whether rows are written to the telemetry log, only while the robot is enabled */
+	private volatile boolean telemetryRecording;
+	/** the pose logged to telemetry, reused every module loop */
+	private final double[] telemetryPose = new double[3];
+
+	/** characterizes the modules' motors instead of running their control, or null */
+	private volatile Characterization characterization;
+	/** whether the last module loop ran a characterization, only touched by the module loop */
+	private boolean characterizing;
 
 	/** requested x velocity, y velocity, angular velocity(rad/s), and angle */
 	private volatile double userVX, userVY, userW, angle;
 	/** determines if robot centric control or field centric control is used */
 	private volatile boolean robotCentric;
+	/** the latest drive command, copied out of BIGData each loop */
+	private final DriveCommand command = new DriveCommand();
+	/** sequence number of the previous drive command this loop acted on */
+	private long lastSequence;
+
+	/** seconds between the current drive command being published and acted on */
+	private final DoubleChannel commandLatency = BIGData.doubleChannel("drive_cmd_latency");
+	/** total number of drive commands that were overwritten before swerve saw them */
+	private final LongChannel commandsMissed = BIGData.longChannel("drive_cmd_missed");
+	/** whether the current drive command is too old to act on */
+	private final BooleanChannel commandStale = BIGData.booleanChannel("drive_cmd_stale");
 
 	private Notifier swerveRunner;
 
 	public Swerve() {
-		this.gyro = new NavXGyro();
-		gyro.reset();
+		this(new RobotSwerveHardware(), true);
+	}
+
+	/**
+	 * @param hardware creates the motors, encoders and gyro used by swerve
+	 * @param runLoops whether to run the module loop in the background. If this
+	 *                 is false, the caller must call {@link #runModules()} every
+	 *                 {@link #MODULE_LOOP_PERIOD} (this is used to run swerve
+	 *                 faster than real time in simulation)
+	 */
+	public Swerve(SwerveHardware hardware, boolean runLoops) {
+		this.gyro = hardware.createGyro();
 		angle = 0.0;
 		robotCentric = false;
 
-		modules = new Module[1];
-		modules[0] = new Module("module", 0, 0);
+		// create the modules listed in the config, e.g. "fr,br,bl,fl"
+		String[] names = BIGData.getString("swerve_modules").split(",");
+		modules = new Module[names.length];
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i].trim();
+			modules[i] = new Module(name, BIGData.getDouble(name + "_x"), BIGData.getDouble(name + "_y"), hardware);
+		}
+
+		double[] xPos = new double[modules.length];
+		double[] yPos = new double[modules.length];
+		for (int i = 0; i < modules.length; i++) {
+			xPos[i] = modules[i].getModuleXPos();
+			yPos[i] = modules[i].getModuleYPos();
+		}
+		kinematics = new SwerveKinematics(xPos, yPos);
+		setpoints = new SpscSlot<>(() -> new ModuleSetpoints(modules.length));
+		pipeline = runLoops && BIGData.getBoolean("swerve_pipeline");
+		poseEstimator = new SwervePoseEstimator(modules, gyro);
+
+		// run every module's angle PID on a shared fixed rate loop. The modules are
+		// desaturated together, so they all run in one task
+		moduleLoop = new LoopScheduler("module-loop", MODULE_LOOP_PERIOD, 1);
+		moduleLoop.add("modules", this::runModules);
+		if (runLoops) {
+			moduleLoop.start();
+			// pick up tuned gains without restarting. Every module gets the same gain
+			// objects, and applies them before its next calculation
+			BIGData.addChangeListener(() -> {
+				WheelAngleGains gains = WheelAngleGains.fromBIGData();
+				for (Module module : modules) {
+					module.setAngleGains(gains);
+				}
+			}, WheelAngleGains.KEYS);
+			BIGData.addChangeListener(() -> {
+				DriveGains gains = DriveGains.fromBIGData();
+				for (Module module : modules) {
+					module.setDriveGains(gains);
+				}
+			}, DriveGains.KEYS);
+			if (BIGData.getBoolean("swerve_telemetry")) {
+				startTelemetry(new File("/home/lvuser"));
+			}
+		}
+	}
+
+	/** start logging every module loop to a new file in the directory */
+	private void startTelemetry(File directory) {
+		String[] columns = new String[TELEMETRY_COLUMNS.length + modules.length * Module.TELEMETRY_COLUMNS.length];
+		System.arraycopy(TELEMETRY_COLUMNS, 0, columns, 0, TELEMETRY_COLUMNS.length);
+		int column = TELEMETRY_COLUMNS.length;
+		for (Module module : modules) {
+			for (String name : Module.TELEMETRY_COLUMNS) {
+				columns[column++] = module.getName() + "_" + name;
+			}
+		}
+		try {
+			telemetry = TelemetryLog.create(directory, "telemetry", TELEMETRY_BUDGET, columns);
+			System.out.println("logging swerve telemetry to " + telemetry.getFile());
+		} catch (IOException e) {
+			System.out.println("unable to start swerve telemetry log: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Set whether the module loop writes to the telemetry log. The robot only
+	 * records while it is enabled, so the log isn't filled while it sits in the
+	 * pit. When recording stops, the rows that don't fill a block of the log are
+	 * written too, since the robot is often turned off right after a match
+	 */
+	public void setTelemetryRecording(boolean recording) {
+		boolean wasRecording = telemetryRecording;
+		telemetryRecording = recording;
+		if (wasRecording && !recording && telemetry != null) {
+			telemetry.flush();
+		}
+	}
+
+	/**
+	 * Run the wheel angle PID of every module once, then scale every module's
+	 * wheel speed by the same factor so no motor goes past its maximum speed and
+	 * the chassis keeps moving in the requested direction. Only call this
+	 * directly if swerve was constructed without running its loops
+	 */
+	public void runModules() {
+		if (setpoints.receive()) {
+			ModuleSetpoints next = setpoints.getReadBuffer();
+			for (int i = 0; i < modules.length; i++) {
+				modules[i].set(next.angles[i], next.speeds[i]);
+			}
+		}
+		Characterization c = characterization;
+		if (c != null && c.run(Clock.nanoTime())) {
+			characterizing = true;
+		} else {
+			if (characterizing) {
+				// the wheels were turned without the angle loops knowing
+				characterizing = false;
+				for (Module m : modules) {
+					m.resetAngleLoop();
+				}
+			}
+			double spinScale = 1;
+			for (Module m : modules) {
+				m.calculate();
+				spinScale = Math.min(spinScale, m.getSpinScale());
+			}
+			for (Module m : modules) {
+				m.applySpeeds(spinScale);
+			}
+			LatencyTracer.applied(Clock.nanoTime());
+		}
+		poseEstimator.update();
+		if (telemetry != null && telemetryRecording) {
+			logTelemetry();
+		}
+	}
+
+	/** write a row with the state of the chassis and every module */
+	private void logTelemetry() {
+		if (!telemetry.startRow(Clock.nanoTime())) {
+			return;
+		}
+		poseEstimator.getPose(telemetryPose);
+		telemetry.set(0, angle);
+		telemetry.set(1, telemetryPose[0]);
+		telemetry.set(2, telemetryPose[1]);
+		telemetry.set(3, telemetryPose[2]);
+		int column = TELEMETRY_COLUMNS.length;
+		for (Module m : modules) {
+			m.logTelemetry(telemetry, column);
+			column += Module.TELEMETRY_COLUMNS.length;
+		}
+		telemetry.finishRow();
+	}
+
+	/**
+	 * Start characterizing the modules' motors (see {@link Characterization}).
+	 * The module loop runs the tests instead of driving until they are done or
+	 * {@link #stopCharacterization()} is called. The robot drives forwards and
+	 * backwards a few meters
+	 */
+	public Characterization startCharacterization() {
+		Characterization c = new Characterization(modules);
+		characterization = c;
+		return c;
+	}
+
+	/** stop characterizing the modules' motors and go back to driving */
+	public void stopCharacterization() {
+		characterization = null;
+	}
+
+	/** get the estimator for the robot's pose on the field */
+	public SwervePoseEstimator getPoseEstimator() {
+		return poseEstimator;
+	}
+
+	/** get the loop that runs the wheel angle PID for every module */
+	public LoopScheduler getModuleLoop() {
+		return moduleLoop;
 	}
 
 	public void start() {
-		if (swerveRunner != null) {swerveRunner.stop();}
-		swerveRunner = new Notifier(this::runSwerve);
-		swerveRunner.startPeriodic(0.02);
+		stop();
+		if (pipeline) {
+			swerveLoop = new LoopScheduler("swerve-loop", SWERVE_LOOP_PERIOD, 1);
+			swerveLoop.add(swerveTimer, this::updateSwerve);
+			swerveLoop.start();
+			BIGData.setDriveRequestListener(swerveLoop::wake);
+		} else {
+			swerveRunner = new Notifier(this::runSwerve);
+			swerveRunner.startPeriodic(SWERVE_LOOP_PERIOD);
+		}
 	}
 	public void stop() {
 		if (swerveRunner != null) {
 			swerveRunner.stop();
+			swerveRunner = null;
+		}
+		if (swerveLoop != null) {
+			BIGData.setDriveRequestListener(null);
+			swerveLoop.stop();
+			swerveLoop = null;
 		}
 	}
 
 	public void runSwerve() {
+		swerveTimer.start();
+		updateSwerve();
+		swerveTimer.stop();
+	}
+
+	/** read the drive command and send new setpoints to the modules */
+	private void updateSwerve() {
 		refreshVals();
 		changeModules(userVX, userVY, userW);
+		if (command.getSequence() != 0) {
+			commandLatency.set((Clock.nanoTime() - command.getTimestamp()) / 1e9);
+		}
 	}
 
 	/** get values from BIGData and load into instance variables */
 	private void refreshVals() {
-		userVX = BIGData.getRequestedVX();
-		userVY = BIGData.getRequestedVY();
-		userW = BIGData.getRequestedW();
+		BIGData.getDriveCommand(command);
+		long seq = command.getSequence();
+		long now = Clock.nanoTime();
+		if (seq > lastSequence + 1) {
+			commandsMissed.set(commandsMissed.get() + seq - lastSequence - 1);
+		}
+		if (seq != lastSequence) {
+			LatencyTracer.pickedUp(seq, command.getInputTimestamp(), command.getTimestamp(), now);
+		}
+		lastSequence = seq;
+		boolean stale = now - command.getTimestamp() > STALE_COMMAND_NANOS;
+		commandStale.set(stale);
+		if (stale) {
+			userVX = 0;
+			userVY = 0;
+			userW = 0;
+		} else {
+			userVX = command.getVX();
+			userVY = command.getVY();
+			userW = command.getW();
+		}
 
 		if (BIGData.getZeroSwerveRequest()) {
 			System.out.println("zeroing ALL wheels");
@@ -61,7 +347,9 @@ public class Swerve {
 			gyro.zeroYaw();
 			BIGData.putZeroGyroRequest(false);
 		}
-		BIGData.putGyroAngle(gyro.getAngle());
+		// sample the gyro once per loop
+		angle = gyro.getAngle();
+		BIGData.putGyroAngle(angle);
 
 		boolean zeroesUpdated = false;
 
@@ -94,20 +382,16 @@ public class Swerve {
 	 */
 	private void changeModules(double vx, double vy, double w) {
 		w *= ROTATE_SCALE;
-		double gyroAngle = (robotCentric ? 0 : Math.toRadians(gyro.getAngle()));
+		double gyroAngle = (robotCentric ? 0 : Math.toRadians(angle));
+		kinematics.update(vx, vy, w, gyroAngle);
+		ModuleSetpoints next = setpoints.getWriteBuffer();
 		for (int i = 0; i < modules.length; i++) {
-			double wheelRadius = Math.sqrt(Math.pow(modules[i].getModuleXPos(), 2) + Math.pow(modules[i].getModuleYPos(), 2));
-			// angle between the module, the center of the robot, and the x axis
-			double wheelAngle = Math.atan2(modules[i].getModuleYPos(), modules[i].getModuleXPos()) - gyroAngle;
-			// x component of tangential velocity
-			double wx = (w * wheelRadius) * Math.cos(Math.PI / 2 + wheelAngle);
-			// y component of tangential velocity
-			double wy = (w * wheelRadius) * Math.sin(Math.PI / 2 + wheelAngle);
-			double wheelVX = vx + wx;
-			double wheelVY = vy + wy;
-			double wheelPos = Math.atan2(wheelVY, wheelVX) + gyroAngle - Math.PI / 2;
-			double power = Math.sqrt(wheelVX * wheelVX + wheelVY * wheelVY);
-			modules[i].set(wheelPos, power);
+			next.angles[i] = kinematics.getAngle(i);
+			next.speeds[i] = kinematics.getSpeed(i);
+		}
+		setpoints.publish();
+		if (pipeline) {
+			moduleLoop.wake();
 		}
 	}
 
@@ -0,0 +1,10 @@
+package frc.swerve;
+
+/** Gyro used for field centric swerve control */
+public interface SwerveGyro {
+	/** get the heading of the robot, in degrees, increasing clockwise */
+	double getAngle();
+
+	/** make the current heading 0 degrees */
+	void zeroYaw();
+}
@@ -0,0 +1,18 @@
+package frc.swerve;
+
+/**
+ * Creates the hardware used by Swerve. There is one implementation backed by
+ * the real motor controllers and sensors, and one backed by a simulation.
+ */
+public interface SwerveHardware {
+	/**
+	 * @param moduleName the name of the module ("fr", "br", etc)
+	 * @param motor      which of the module's motors to create (1 or 2)
+	 */
+	DriveMotor createDriveMotor(String moduleName, int motor);
+
+	/** @param moduleName the name of the module ("fr", "br", etc) */
+	AzimuthEncoder createAzimuthEncoder(String moduleName);
+
+	SwerveGyro createGyro();
+}
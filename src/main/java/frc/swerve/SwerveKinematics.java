@@ -0,0 +1,73 @@
+package frc.swerve;
+
+/**
+ * Inverse kinematics for a swerve drive with fixed module positions. The
+ * inverse kinematics matrix (each module's contribution from rotation) is
+ * computed once, so converting a chassis velocity into module states only
+ * needs the field centric rotation and one polar conversion per module.
+ * Results are written into arrays owned by this object, so nothing is
+ * allocated per call.
+ */
+class SwerveKinematics {
+	/**
+	 * rows of the inverse kinematics matrix for the rotational term: module i's
+	 * velocity is (vx + rotX[i] * w, vy + rotY[i] * w) in the robot frame
+	 */
+	private final double[] rotX;
+	private final double[] rotY;
+
+	/** module azimuths computed by the last call to update, in radians */
+	private final double[] angles;
+	/** module wheel speeds computed by the last call to update */
+	private final double[] speeds;
+
+	/**
+	 * @param xPos the x position of each module relative to the center of the robot
+	 * @param yPos the y position of each module relative to the center of the robot
+	 */
+	public SwerveKinematics(double[] xPos, double[] yPos) {
+		int n = xPos.length;
+		rotX = new double[n];
+		rotY = new double[n];
+		for (int i = 0; i < n; i++) {
+			// tangential velocity of a point at (x, y) is w x r = (-w * y, w * x)
+			rotX[i] = -yPos[i];
+			rotY[i] = xPos[i];
+		}
+		angles = new double[n];
+		speeds = new double[n];
+	}
+
+	/**
+	 * Compute the state of every module for the requested chassis velocity.
+	 * 
+	 * @param vx        the requested x velocity, in the field frame
+	 * @param vy        the requested y velocity, in the field frame
+	 * @param w         the requested angular velocity
+	 * @param gyroAngle the angle to rotate the field frame by to get the robot
+	 *                  frame, in radians (0 for robot centric control)
+	 */
+	public void update(double vx, double vy, double w, double gyroAngle) {
+		double cos = Math.cos(gyroAngle);
+		double sin = Math.sin(gyroAngle);
+		double robotVX = vx * cos - vy * sin;
+		double robotVY = vx * sin + vy * cos;
+		for (int i = 0; i < angles.length; i++) {
+			double wheelVX = robotVX + rotX[i] * w;
+			double wheelVY = robotVY + rotY[i] * w;
+			// an azimuth of 0 points the wheel forward (along y)
+			angles[i] = Math.atan2(wheelVY, wheelVX) - Math.PI / 2;
+			speeds[i] = Math.sqrt(wheelVX * wheelVX + wheelVY * wheelVY);
+		}
+	}
+
+	/** get the azimuth of module i from the last update, in radians */
+	public double getAngle(int i) {
+		return angles[i];
+	}
+
+	/** get the wheel speed of module i from the last update */
+	public double getSpeed(int i) {
+		return speeds[i];
+	}
+}
@@ -0,0 +1,197 @@
+package frc.swerve;
+
+import frc.gen.BIGData;
+import frc.gen.DoubleChannel;
+import frc.util.Clock;
+
+/**
+ * Estimates the pose of the robot on the field from the module drive encoders,
+ * the azimuth encoders and the gyro. It is updated from the module loop, so it
+ * integrates at the module loop rate. Each module's wheel travel (from the
+ * difference of its two drive encoders) is pointed along its measured azimuth,
+ * and the chassis translation is the average over the modules. The heading
+ * comes from the gyro.
+ * <p>
+ * Past poses are kept in a ring buffer, so a delayed measurement (e.g. from
+ * vision) can be compared against where the robot thought it was when the
+ * measurement was taken, and the correction applied to the current pose.
+ * </p>
+ * <p>
+ * The field frame has x to the right and y forward when the gyro was zeroed,
+ * and headings are in radians counterclockwise. Nothing is allocated after
+ * construction.
+ * </p>
+ */
+public class SwervePoseEstimator {
+	/** number of past poses kept (1.28 seconds at the module loop rate) */
+	private static final int HISTORY_SIZE = 256;
+
+	private final Module[] modules;
+	private final SwerveGyro gyro;
+	/** wheel radius, in meters */
+	private final double wheelRadius;
+
+	/** wheel rotation of each module at the last update, in radians */
+	private final double[] lastWheelRotation;
+	private boolean initialized;
+
+	// current pose estimate
+	private double x, y, heading;
+	/** added to the gyro heading to get the field heading, in radians */
+	private double headingOffset;
+
+	// ring buffer of past poses
+	private final long[] historyTime = new long[HISTORY_SIZE];
+	private final double[] historyX = new double[HISTORY_SIZE];
+	private final double[] historyY = new double[HISTORY_SIZE];
+	private final double[] historyHeading = new double[HISTORY_SIZE];
+	private int historyCount;
+
+	private final DoubleChannel poseX = BIGData.doubleChannel("pose_x");
+	private final DoubleChannel poseY = BIGData.doubleChannel("pose_y");
+	private final DoubleChannel poseHeading = BIGData.doubleChannel("pose_heading");
+
+	public SwervePoseEstimator(Module[] modules, SwerveGyro gyro) {
+		this.modules = modules;
+		this.gyro = gyro;
+		wheelRadius = BIGData.getDouble("swerve_wheel_radius");
+		lastWheelRotation = new double[modules.length];
+	}
+
+	/** update the pose from the latest sensor readings. Called every module loop */
+	public synchronized void update() {
+		double gyroHeading = -Math.toRadians(gyro.getAngle());
+		if (!initialized) {
+			for (int i = 0; i < modules.length; i++) {
+				lastWheelRotation[i] = modules[i].getWheelRotation();
+			}
+			heading = gyroHeading + headingOffset;
+			initialized = true;
+			record();
+			return;
+		}
+
+		// average displacement of the modules, in the robot frame
+		double dx = 0, dy = 0;
+		for (int i = 0; i < modules.length; i++) {
+			double rotation = modules[i].getWheelRotation();
+			double distance = (rotation - lastWheelRotation[i]) * wheelRadius;
+			lastWheelRotation[i] = rotation;
+			// an azimuth of 0 points the wheel forward (along y)
+			double direction = modules[i].getAzimuth() + Math.PI / 2;
+			dx += distance * Math.cos(direction);
+			dy += distance * Math.sin(direction);
+		}
+		dx /= modules.length;
+		dy /= modules.length;
+
+		// rotate into the field frame using the heading halfway through the step
+		double newHeading = gyroHeading + headingOffset;
+		double midHeading = heading + (newHeading - heading) / 2;
+		double cos = Math.cos(midHeading);
+		double sin = Math.sin(midHeading);
+		x += dx * cos - dy * sin;
+		y += dx * sin + dy * cos;
+		heading = newHeading;
+		record();
+	}
+
+	/** store the current pose in the history and publish it to BIGData */
+	private void record() {
+		int i = historyCount % HISTORY_SIZE;
+		historyTime[i] = Clock.nanoTime();
+		historyX[i] = x;
+		historyY[i] = y;
+		historyHeading[i] = heading;
+		historyCount++;
+		poseX.set(x);
+		poseY.set(y);
+		poseHeading.set(heading);
+	}
+
+	/**
+	 * Fuse a delayed measurement of the robot's pose. The measurement is compared
+	 * with the estimated pose at the time it was taken, and a fraction of the
+	 * difference is applied to the current pose and the history after that time.
+	 * 
+	 * @param measuredX       the measured x position, in meters
+	 * @param measuredY       the measured y position, in meters
+	 * @param measuredHeading the measured heading, in radians counterclockwise
+	 * @param timestamp       the Clock.nanoTime() the measurement was taken at
+	 * @param weight          how much to trust the measurement, from 0 (not at
+	 *                        all) to 1 (completely)
+	 * @return false if the measurement is older than the history
+	 */
+	public synchronized boolean addMeasurement(double measuredX, double measuredY, double measuredHeading,
+			long timestamp, double weight) {
+		int index = findHistory(timestamp);
+		if (index < 0) {
+			return false;
+		}
+		double ex = weight * (measuredX - historyX[index]);
+		double ey = weight * (measuredY - historyY[index]);
+		double eh = weight * Math.IEEEremainder(measuredHeading - historyHeading[index], 2 * Math.PI);
+		// shift every pose from the measurement time on by the correction
+		for (int n = historyCount - 1; n >= Math.max(0, historyCount - HISTORY_SIZE); n--) {
+			int i = n % HISTORY_SIZE;
+			if (historyTime[i] - timestamp < 0) {
+				break;
+			}
+			historyX[i] += ex;
+			historyY[i] += ey;
+			historyHeading[i] += eh;
+		}
+		x += ex;
+		y += ey;
+		heading += eh;
+		headingOffset += eh;
+		poseX.set(x);
+		poseY.set(y);
+		poseHeading.set(heading);
+		return true;
+	}
+
+	/**
+	 * find the index of the newest pose in the history recorded at or before the
+	 * timestamp, or -1 if the history doesn't go back that far
+	 */
+	private int findHistory(long timestamp) {
+		int oldest = Math.max(0, historyCount - HISTORY_SIZE);
+		for (int n = historyCount - 1; n >= oldest; n--) {
+			int i = n % HISTORY_SIZE;
+			if (historyTime[i] - timestamp <= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** set the current pose, clearing the history */
+	public synchronized void resetPose(double newX, double newY, double newHeading) {
+		x = newX;
+		y = newY;
+		headingOffset = newHeading + Math.toRadians(gyro.getAngle());
+		heading = newHeading;
+		historyCount = 0;
+		initialized = false;
+	}
+
+	/** copy the current pose (x, y in meters, heading in radians) into dest */
+	public synchronized void getPose(double[] dest) {
+		dest[0] = x;
+		dest[1] = y;
+		dest[2] = heading;
+	}
+
+	public synchronized double getX() {
+		return x;
+	}
+
+	public synchronized double getY() {
+		return y;
+	}
+
+	public synchronized double getHeading() {
+		return heading;
+	}
+}
@@ -0,0 +1,88 @@
+package frc.swerve;
+
+import frc.gen.BIGData;
+
+/**
+ * Gains and trapezoidal profile constraints for the loop that drives a module's
+ * wheel azimuth. Angles are in radians.
+ * <p>
+ * With feedforward off, the steer speed is the output of the PID controller
+ * alone. With it on, the profile's setpoint velocity is added to the PID
+ * output, and a model of the ring gear (kS, kV, kA) gives a voltage that is
+ * added to both motors' velocity loops, so the PID only has to correct
+ * errors.
+ * </p>
+ */
+public class WheelAngleGains {
+	/** profile constraint used when the config doesn't give one, in rad/s and rad/s^2 */
+	private static final double DEFAULT_CONSTRAINT = 1;
+	/** the config keys the gains are read from */
+	public static final String[] KEYS = { "wheel_angle_kP", "wheel_angle_kI", "wheel_angle_kD",
+			"wheel_angle_max_velocity", "wheel_angle_max_acceleration", "wheel_angle_feedforward",
+			"wheel_angle_kS", "wheel_angle_kV", "wheel_angle_kA", "wheel_angle_spin_coupling" };
+
+	public final double kP;
+	public final double kI;
+	public final double kD;
+	/** maximum azimuth speed of the profile, in radians/sec */
+	public final double maxVelocity;
+	/** maximum azimuth acceleration of the profile, in radians/sec^2 */
+	public final double maxAcceleration;
+	/** whether to use the profile velocity and the ring gear model as feedforward */
+	public final boolean feedforward;
+	/** volts added to each motor to overcome the ring gear's friction, in the direction it turns */
+	public final double kS;
+	/** volts added to each motor per radian/sec of azimuth speed, beyond the velocity loop's kF */
+	public final double kV;
+	/** volts added to each motor per radian/sec^2 of azimuth acceleration */
+	public final double kA;
+	/**
+	 * azimuth speed caused by each radian/sec of wheel spin (e.g. from uneven
+	 * gearing in the differential), in radians/sec per radian/sec. It is
+	 * subtracted from the steer speed
+	 */
+	public final double spinCoupling;
+
+	/** gains for the wheel angle loop without feedforward */
+	public WheelAngleGains(double kP, double kI, double kD, double maxVelocity, double maxAcceleration) {
+		this(kP, kI, kD, maxVelocity, maxAcceleration, false, 0, 0, 0, 0);
+	}
+
+	public WheelAngleGains(double kP, double kI, double kD, double maxVelocity, double maxAcceleration,
+			boolean feedforward, double kS, double kV, double kA, double spinCoupling) {
+		this.kP = kP;
+		this.kI = kI;
+		this.kD = kD;
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+		this.feedforward = feedforward;
+		this.kS = kS;
+		this.kV = kV;
+		this.kA = kA;
+		this.spinCoupling = spinCoupling;
+	}
+
+	/**
+	 * read the gains from "wheel_angle_kP/kI/kD", the constraints from
+	 * "wheel_angle_max_velocity" and "wheel_angle_max_acceleration", and the
+	 * feedforward from "wheel_angle_feedforward", "wheel_angle_kS/kV/kA" and
+	 * "wheel_angle_spin_coupling"
+	 */
+	public static WheelAngleGains fromBIGData() {
+		return new WheelAngleGains(BIGData.getDouble(KEYS[0]), BIGData.getDouble(KEYS[1]),
+				BIGData.getDouble(KEYS[2]), constraint(KEYS[3]), constraint(KEYS[4]), BIGData.getBoolean(KEYS[5]),
+				BIGData.getDouble(KEYS[6]), BIGData.getDouble(KEYS[7]), BIGData.getDouble(KEYS[8]),
+				BIGData.getDouble(KEYS[9]));
+	}
+
+	/** get a copy of these gains with the PID gains and constraints replaced */
+	public WheelAngleGains withPID(double kP, double kI, double kD, double maxVelocity, double maxAcceleration) {
+		return new WheelAngleGains(kP, kI, kD, maxVelocity, maxAcceleration, feedforward, kS, kV, kA,
+				spinCoupling);
+	}
+
+	private static double constraint(String key) {
+		double val = BIGData.getDouble(key);
+		return val > 0 ? val : DEFAULT_CONSTRAINT;
+	}
+}
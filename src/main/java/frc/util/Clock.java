@@ -0,0 +1,30 @@
+package frc.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Source of time for the control code. This is System.nanoTime() on the
+ * robot, and can be replaced by a simulated clock so the control code can run
+ * faster (or slower) than real time.
+ */
+public class Clock {
+	private static volatile LongSupplier source = System::nanoTime;
+
+	private Clock() {
+	}
+
+	/** get the current time, in nanoseconds. Only differences between times are meaningful */
+	public static long nanoTime() {
+		return source.getAsLong();
+	}
+
+	/** replace the time source (e.g. with a simulation's clock) */
+	public static void setSource(LongSupplier nanoTimeSource) {
+		source = nanoTimeSource;
+	}
+
+	/** go back to using System.nanoTime() */
+	public static void useSystemTime() {
+		source = System::nanoTime;
+	}
+}
@@ -0,0 +1,103 @@
+package frc.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of durations in nanoseconds, bucketed like
+ * HdrHistogram: each power of two range is split into 32 linear sub-buckets,
+ * so any recorded value is reported within about 3%. Recording doesn't
+ * allocate. One thread should record into a histogram, but any thread may read
+ * it.
+ */
+public class LatencyHistogram {
+	/** number of bits of precision kept for each value */
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	/** largest power of two tracked (2^36 ns is about 68 seconds) */
+	private static final int MAX_EXPONENT = 36;
+	private static final int BUCKETS = SUB_COUNT + (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private volatile long totalCount;
+	private volatile long max;
+
+	/** record a duration, in nanoseconds. Negative durations are recorded as 0 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		int i = bucketIndex(nanos);
+		// only the recording thread writes, so a plain increment is enough
+		counts.lazySet(i, counts.get(i) + 1);
+		totalCount++;
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	/** get the number of values recorded */
+	public long getCount() {
+		return totalCount;
+	}
+
+	/** get the largest value recorded, in nanoseconds */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the value at the given percentile, in nanoseconds.
+	 * 
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the smallest bucket value that at least percentile percent of the
+	 *         recorded values are less than or equal to, or 0 if nothing has been
+	 *         recorded
+	 */
+	public long getPercentile(double percentile) {
+		long count = totalCount;
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(bucketUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	/** clear all recorded values */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		totalCount = 0;
+		max = 0;
+	}
+
+	private static int bucketIndex(long value) {
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent < SUB_BITS) {
+			return (int) value;
+		}
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int shift = exponent - SUB_BITS;
+		int sub = (int) (value >>> shift) - SUB_COUNT;
+		return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + sub;
+	}
+
+	/** the largest value that falls in bucket i */
+	private static long bucketUpperBound(int i) {
+		if (i < SUB_COUNT) {
+			return i;
+		}
+		int shift = (i - SUB_COUNT) / SUB_COUNT;
+		int sub = (i - SUB_COUNT) % SUB_COUNT;
+		return ((long) (sub + SUB_COUNT + 1) << shift) - 1;
+	}
+}
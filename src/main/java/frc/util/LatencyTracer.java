@@ -0,0 +1,240 @@
+package frc.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import frc.gen.BIGData;
+import frc.gen.DoubleChannel;
+
+/**
+ * Traces drive commands from the joystick to the motors. Each command is
+ * followed by its sequence number through four points in time:
+ * <ol>
+ * <li>sampled: the driver's input was read (carried in the command, see
+ * {@link frc.gen.DriveCommand#getInputTimestamp()})</li>
+ * <li>published: the command was put in BIGData (robot thread)</li>
+ * <li>picked up: the swerve loop read the command (swerve thread)</li>
+ * <li>applied: the module loop first sent speeds based on it to the motors
+ * (module thread)</li>
+ * </ol>
+ * The time between each pair of points, and from sampled to applied, is kept
+ * in a {@link LatencyHistogram} per stage. {@link #publish()} writes each
+ * stage's p50, p99 and max (in milliseconds) to BIGData as
+ * "latency_&lt;stage&gt;_p50" etc., and every traced command is appended to a
+ * binary log that {@link #writeLog(Path)} saves.
+ * <p>
+ * Log format, big endian: int magic "GRTL", int version, int record size, int
+ * record count, then one record per command: int sequence, long published
+ * time (Clock.nanoTime()), then the sampled, picked up and applied times as int
+ * nanoseconds relative to the published time (sampled is 0 if it isn't known).
+ * </p>
+ * <p>
+ * Each stage is recorded by only one thread, and nothing allocates while
+ * tracing.
+ * </p>
+ */
+public final class LatencyTracer {
+	/** a stage of a drive command's trip from the joystick to the motors */
+	public enum Stage {
+		/** from the input being sampled to the command being published */
+		INPUT("input"),
+		/** from the command being published to the swerve loop reading it */
+		PICKUP("pickup"),
+		/** from the swerve loop reading the command to the module loop applying it */
+		APPLY("apply"),
+		/** from the input being sampled to the module loop applying it */
+		TOTAL("total");
+
+		final String name;
+		final LatencyHistogram histogram = new LatencyHistogram();
+		/** the reset generation the histogram was last cleared for */
+		int generation;
+		DoubleChannel p50, p99, max;
+
+		Stage(String name) {
+			this.name = name;
+		}
+
+		/** get the histogram of this stage's latency, in nanoseconds */
+		public LatencyHistogram getHistogram() {
+			return histogram;
+		}
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+
+	private static final int MAGIC = 0x4752544c; // "GRTL"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 24;
+	/** number of commands the log holds, about 5 minutes of teleop */
+	private static final int LOG_CAPACITY = 16384;
+	/** the latest command picked up by the swerve loop, handed to the module loop */
+	private static volatile long pickedSeq;
+	private static volatile long pickedSampled;
+	private static volatile long pickedPublished;
+	private static volatile long pickedTime;
+	/** the last command the module loop applied (only used by the module thread) */
+	private static long appliedSeq;
+
+	private static final ByteBuffer log = ByteBuffer.allocate(LOG_CAPACITY * RECORD_SIZE);
+	/** number of complete records in the log */
+	private static volatile int logCount;
+	private static int logGeneration;
+
+	/** incremented to ask every recording thread to clear what it has recorded */
+	private static volatile int generation;
+
+	private static boolean enabled = true;
+
+	private LatencyTracer() {
+	}
+
+	/** turn tracing on or off. Meant to be set once at startup */
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * clear the histograms and log, e.g. at the start of a match. Each thread
+	 * clears its own stages the next time it records
+	 */
+	public static void reset() {
+		generation++;
+	}
+
+	/**
+	 * Call from the swerve loop when it reads a new drive command.
+	 * @param sequence the sequence number of the command
+	 * @param sampled when the input the command was made from was read, or 0 if unknown
+	 * @param published when the command was published (Clock.nanoTime())
+	 * @param now when the command was read (Clock.nanoTime())
+	 */
+	public static void pickedUp(long sequence, long sampled, long published, long now) {
+		if (!enabled) {
+			return;
+		}
+		if (sampled != 0) {
+			record(Stage.INPUT, published - sampled);
+		}
+		record(Stage.PICKUP, now - published);
+		// pickedSeq is written last, and checked again by the reader
+		pickedSeq = 0;
+		pickedSampled = sampled;
+		pickedPublished = published;
+		pickedTime = now;
+		pickedSeq = sequence;
+	}
+
+	/**
+	 * Call from the module loop after it has sent speeds to the motors. Does
+	 * nothing unless the swerve loop has picked up a new command since the last
+	 * call.
+	 * @param now when the speeds were sent (Clock.nanoTime())
+	 */
+	public static void applied(long now) {
+		long seq = pickedSeq;
+		if (seq == appliedSeq || seq == 0) {
+			return;
+		}
+		long sampled = pickedSampled;
+		long published = pickedPublished;
+		long picked = pickedTime;
+		if (pickedSeq != seq) {
+			// the swerve loop handed over another command while we read this one
+			return;
+		}
+		appliedSeq = seq;
+		record(Stage.APPLY, now - picked);
+		if (sampled != 0) {
+			record(Stage.TOTAL, now - sampled);
+		} else {
+			// not made from driver input (e.g. autonomous)
+			sampled = published;
+		}
+		appendLog(seq, published, sampled, picked, now);
+	}
+
+	private static void record(Stage stage, long nanos) {
+		int gen = generation;
+		if (stage.generation != gen) {
+			stage.histogram.reset();
+			stage.generation = gen;
+		}
+		stage.histogram.record(nanos);
+	}
+
+	/** add a record to the log (module thread only) */
+	private static void appendLog(long seq, long published, long sampled, long picked, long applied) {
+		int gen = generation;
+		if (logGeneration != gen) {
+			logCount = 0;
+			logGeneration = gen;
+		}
+		int count = logCount;
+		if (count >= LOG_CAPACITY) {
+			return;
+		}
+		int at = count * RECORD_SIZE;
+		log.putInt(at, (int) seq);
+		log.putLong(at + 4, published);
+		log.putInt(at + 12, clampToInt(sampled - published));
+		log.putInt(at + 16, clampToInt(picked - published));
+		log.putInt(at + 20, clampToInt(applied - published));
+		// publish the record by counting it
+		logCount = count + 1;
+	}
+
+	private static int clampToInt(long val) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, val));
+	}
+
+	/** write each stage's p50, p99 and max to BIGData, in milliseconds. Meant to be called from robotPeriodic() */
+	public static void publish() {
+		for (Stage stage : STAGES) {
+			if (stage.p50 == null) {
+				String prefix = "latency_" + stage.name + "_";
+				stage.p50 = BIGData.doubleChannel(prefix + "p50");
+				stage.p99 = BIGData.doubleChannel(prefix + "p99");
+				stage.max = BIGData.doubleChannel(prefix + "max");
+			}
+			stage.p50.set(stage.histogram.getPercentile(50) / 1e6);
+			stage.p99.set(stage.histogram.getPercentile(99) / 1e6);
+			stage.max.set(stage.histogram.getMax() / 1e6);
+		}
+	}
+
+	/**
+	 * Save the log of traced commands to a file, and print each stage's
+	 * latency. Does nothing if no commands have been traced since the last
+	 * reset. This blocks on the filesystem, so call it from a background thread.
+	 */
+	public static void writeLog(Path file) {
+		int count = logCount;
+		if (count == 0) {
+			return;
+		}
+		ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+		out.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(count);
+		ByteBuffer records = log.duplicate();
+		records.position(0).limit(count * RECORD_SIZE);
+		out.put(records);
+		out.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+		} catch (IOException e) {
+			System.out.println("unable to write latency log " + file);
+		}
+		for (Stage stage : STAGES) {
+			LatencyHistogram h = stage.histogram;
+			System.out.printf("latency %s: p50 %.2f ms, p99 %.2f ms, max %.2f ms (%d commands)%n", stage.name,
+					h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6, h.getCount());
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package frc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.gen.BIGData;
+import frc.gen.DoubleChannel;
+import frc.gen.LongChannel;
+
+/**
+ * Measures how long each iteration of a periodic loop takes and how late it
+ * starts. Keeps latency histograms of execution time and start jitter, a count
+ * of overruns (iterations that took longer than the period), and a ring buffer
+ * of the most recent slow iterations. Recording an iteration doesn't allocate.
+ * <p>
+ * Every LoopTimer is registered when it is created, and
+ * {@link #publishAll()} writes their aggregates (in milliseconds) to BIGData
+ * under "loop_&lt;name&gt;_..." and to the "loops" NetworkTable.
+ * </p>
+ */
+public class LoopTimer {
+	/** number of slow iterations to remember */
+	private static final int SLOW_HISTORY = 32;
+	/** how many publishAll() calls between NetworkTables updates */
+	private static final int NT_PUBLISH_INTERVAL = 50;
+
+	private static final List<LoopTimer> timers = new ArrayList<LoopTimer>();
+	private static int publishCount = 0;
+
+	private final String name;
+	/** expected loop period, in nanoseconds */
+	private final long periodNanos;
+
+	private final LatencyHistogram execution = new LatencyHistogram();
+	private final LatencyHistogram jitter = new LatencyHistogram();
+	private volatile long overruns;
+
+	/** start time and execution time of the last few slow iterations, oldest overwritten first */
+	private final long[] slowStarts = new long[SLOW_HISTORY];
+	private final long[] slowDurations = new long[SLOW_HISTORY];
+	private volatile int slowCount;
+
+	/** start time of the iteration in progress, for start() and stop() */
+	private long currentStart;
+	private long lastStart;
+
+	// BIGData channels the aggregates are published to
+	private final DoubleChannel execP50, execP99, execMax, jitterP99, jitterMax;
+	private final LongChannel overrunChannel;
+	// NetworkTables entries, resolved the first time they are published
+	private NetworkTableEntry[] entries;
+
+	/**
+	 * @param name   the name of the loop (e.g. "swerve")
+	 * @param period the expected period of the loop, in seconds
+	 */
+	public LoopTimer(String name, double period) {
+		this.name = name;
+		this.periodNanos = (long) (period * 1e9);
+		String prefix = "loop_" + name + "_";
+		execP50 = BIGData.doubleChannel(prefix + "exec_p50");
+		execP99 = BIGData.doubleChannel(prefix + "exec_p99");
+		execMax = BIGData.doubleChannel(prefix + "exec_max");
+		jitterP99 = BIGData.doubleChannel(prefix + "jitter_p99");
+		jitterMax = BIGData.doubleChannel(prefix + "jitter_max");
+		overrunChannel = BIGData.longChannel(prefix + "overruns");
+		synchronized (timers) {
+			timers.add(this);
+		}
+	}
+
+	/**
+	 * Mark the start of an iteration of a loop that isn't scheduled against
+	 * deadlines. Start jitter is measured as how far the time since the previous
+	 * start is from the period.
+	 */
+	public void start() {
+		currentStart = System.nanoTime();
+		if (lastStart != 0) {
+			jitter.record(Math.abs(currentStart - lastStart - periodNanos));
+		}
+		lastStart = currentStart;
+	}
+
+	/** mark the end of the iteration started by start() */
+	public void stop() {
+		recordExecution(currentStart, System.nanoTime());
+	}
+
+	/**
+	 * Record an iteration of a loop that is scheduled against deadlines.
+	 * 
+	 * @param deadline when the iteration should have started (System.nanoTime())
+	 * @param start    when the iteration started
+	 * @param end      when the iteration finished
+	 */
+	public void record(long deadline, long start, long end) {
+		jitter.record(start - deadline);
+		recordExecution(start, end);
+	}
+
+	private void recordExecution(long start, long end) {
+		long duration = end - start;
+		execution.record(duration);
+		if (duration > periodNanos) {
+			int i = slowCount % SLOW_HISTORY;
+			slowStarts[i] = start;
+			slowDurations[i] = duration;
+			slowCount++;
+			overruns++;
+		}
+	}
+
+	/** get the name of the loop */
+	public String getName() {
+		return name;
+	}
+
+	/** get the histogram of iteration execution times */
+	public LatencyHistogram getExecution() {
+		return execution;
+	}
+
+	/** get the histogram of how late iterations started */
+	public LatencyHistogram getJitter() {
+		return jitter;
+	}
+
+	/** get the number of iterations that took longer than the period */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * Copy the most recent slow iterations, oldest first, into the arrays given.
+	 * 
+	 * @param starts    filled with the System.nanoTime() each slow iteration started
+	 * @param durations filled with how long each slow iteration took, in nanoseconds
+	 * @return the number of slow iterations copied
+	 */
+	public int getSlowIterations(long[] starts, long[] durations) {
+		int count = slowCount;
+		int n = Math.min(Math.min(count, SLOW_HISTORY), Math.min(starts.length, durations.length));
+		for (int k = 0; k < n; k++) {
+			int i = (count - n + k) % SLOW_HISTORY;
+			starts[k] = slowStarts[i];
+			durations[k] = slowDurations[i];
+		}
+		return n;
+	}
+
+	/** write this timer's aggregates to BIGData */
+	public void publish() {
+		execP50.set(execution.getPercentile(50) / 1e6);
+		execP99.set(execution.getPercentile(99) / 1e6);
+		execMax.set(execution.getMax() / 1e6);
+		jitterP99.set(jitter.getPercentile(99) / 1e6);
+		jitterMax.set(jitter.getMax() / 1e6);
+		overrunChannel.set(overruns);
+	}
+
+	private void publishToNetworkTables() {
+		if (entries == null) {
+			NetworkTable table = NetworkTableInstance.getDefault().getTable("loops").getSubTable(name);
+			entries = new NetworkTableEntry[] { table.getEntry("exec_p50"), table.getEntry("exec_p99"),
+					table.getEntry("exec_max"), table.getEntry("jitter_p99"), table.getEntry("jitter_max"),
+					table.getEntry("overruns") };
+		}
+		entries[0].setDouble(execP50.get());
+		entries[1].setDouble(execP99.get());
+		entries[2].setDouble(execMax.get());
+		entries[3].setDouble(jitterP99.get());
+		entries[4].setDouble(jitterMax.get());
+		entries[5].setDouble(overrunChannel.get());
+	}
+
+	/**
+	 * Publish the aggregates of every LoopTimer to BIGData, and every so often to
+	 * NetworkTables. Meant to be called from robotPeriodic().
+	 */
+	public static void publishAll() {
+		boolean toNetworkTables = publishCount++ % NT_PUBLISH_INTERVAL == 0;
+		synchronized (timers) {
+			for (int i = 0; i < timers.size(); i++) {
+				LoopTimer t = timers.get(i);
+				t.publish();
+				if (toNetworkTables) {
+					t.publishToNetworkTables();
+				}
+			}
+		}
+	}
+}
@@ -1,44 +1,156 @@
 package frc.util;
 
 public class PiecewiseLinearFunction {
+    /** what the function returns for inputs outside of its domain */
+    public enum Extrapolation {
+        /** the y value of the nearest end point */
+        CLAMP,
+        /** extend the first and last segments */
+        LINEAR,
+        /** always 0 */
+        ZERO
+    }
+
+    /** tables with more points than this are searched with a binary search */
+    private static final int LINEAR_SEARCH_MAX = 8;
+
     // x and y values of the points that define this piecewise function
-    private double[] xVals;
-    private double[] yVals;
+    private final double[] xVals;
+    private final double[] yVals;
+    /** slope and intercept of the segment from point i to point i+1 */
+    private final double[] slopes;
+    private final double[] intercepts;
+    private final Extrapolation extrapolation;
+
+    /** values of the function at evenly spaced x values across the domain, or null if not in lookup table mode */
+    private final double[] table;
+    /** number of table entries per unit of x */
+    private final double tableScale;
 
     /**
      * xVals and yVals should be arrays of the same length and the xVals array should
-     * be in ascending order. The piecewise function will be defined by 
-     * points (xVals[i], yVals[i]) for each i.
+     * be in ascending order. The piecewise function will be defined by
+     * points (xVals[i], yVals[i]) for each i. Inputs outside of the domain are clamped to it.
      * @param xVals the x values that define the piecewise function
      * @param yVals the y values that define the piecewise function
      */
     public PiecewiseLinearFunction(double[] xVals, double[] yVals) {
+        this(xVals, yVals, Extrapolation.CLAMP);
+    }
+
+    /**
+     * @param xVals the x values that define the piecewise function, in strictly ascending order
+     * @param yVals the y values that define the piecewise function
+     * @param extrapolation what to return for inputs outside of the domain
+     * @throws IllegalArgumentException if there are no points, the arrays are different
+     * lengths, or the x values aren't in strictly ascending order
+     */
+    public PiecewiseLinearFunction(double[] xVals, double[] yVals, Extrapolation extrapolation) {
+        if (xVals.length == 0 || xVals.length != yVals.length) {
+            throw new IllegalArgumentException("piecewise function needs the same number (at least 1) of x and y values");
+        }
+        for (int i = 1; i < xVals.length; i++) {
+            if (!(xVals[i] > xVals[i - 1])) {
+                throw new IllegalArgumentException("piecewise function x values must be in ascending order");
+            }
+        }
         this.xVals = xVals.clone();
         this.yVals = yVals.clone();
+        this.extrapolation = extrapolation;
+        int segments = Math.max(xVals.length - 1, 1);
+        slopes = new double[segments];
+        intercepts = new double[segments];
+        if (xVals.length == 1) {
+            intercepts[0] = yVals[0];
+        }
+        for (int i = 0; i < xVals.length - 1; i++) {
+            slopes[i] = (yVals[i + 1] - yVals[i]) / (xVals[i + 1] - xVals[i]);
+            intercepts[i] = yVals[i] - slopes[i] * xVals[i];
+        }
+        table = null;
+        tableScale = 0;
+    }
+
+    /** copy of the function in lookup table mode */
+    private PiecewiseLinearFunction(PiecewiseLinearFunction f, int resolution) {
+        xVals = f.xVals;
+        yVals = f.yVals;
+        slopes = f.slopes;
+        intercepts = f.intercepts;
+        extrapolation = f.extrapolation;
+        double min = xVals[0];
+        double max = xVals[xVals.length - 1];
+        // one extra entry so the last step can interpolate to the end of the domain
+        table = new double[resolution + 1];
+        for (int i = 0; i <= resolution; i++) {
+            table[i] = f.apply(min + (max - min) * i / resolution);
+        }
+        tableScale = max > min ? resolution / (max - min) : 0;
+    }
+
+    /**
+     * Get a copy of this function that is evaluated in constant time, by linear
+     * interpolation in a table of its values at evenly spaced x values. Points
+     * of this function that fall between the table's x values are rounded
+     * off, so use a resolution high enough for the closest points. Inputs
+     * outside the domain are handled exactly as before.
+     * @param resolution the number of steps the domain is divided into
+     */
+    public PiecewiseLinearFunction withLookupTable(int resolution) {
+        if (resolution < 1) {
+            throw new IllegalArgumentException("lookup table resolution must be at least 1");
+        }
+        return new PiecewiseLinearFunction(this, resolution);
     }
 
     /**
-     * Applies the function to the input given. Returns 0 if the input is outside
-     * of the domain of the piecewise function.
+     * Applies the function to the input given. Inputs outside of the domain of
+     * the piecewise function are handled by its {@link Extrapolation}.
      * @return the function applied to the input given
      */
     public double apply(double input) {
-        System.out.print("input:" + input + ",output:");
-        // index of the point higher than the 
-        int upperBoundIndex = 0;
-        // for our purposes, the array isn't going to be long so no binary search
-        while (upperBoundIndex < xVals.length && xVals[upperBoundIndex] <= input) {
-            if (upperBoundIndex == xVals.length - 1 && 
-                xVals[upperBoundIndex] == input) { // deal with upper edge case
-                break;
+        int last = xVals.length - 1;
+        if (input < xVals[0] || input > xVals[last]) {
+            switch (extrapolation) {
+            case CLAMP:
+                return input < xVals[0] ? yVals[0] : yVals[last];
+            case LINEAR:
+                int segment = input < xVals[0] ? 0 : slopes.length - 1;
+                return slopes[segment] * input + intercepts[segment];
+            default:
+                return 0;
             }
-            upperBoundIndex++;
         }
-        // if the input is outside the domain of our function
-        if (upperBoundIndex == 0 || upperBoundIndex == xVals.length) {
-            return -100;
+        if (table != null) {
+            double t = (input - xVals[0]) * tableScale;
+            int i = Math.min((int) t, table.length - 2);
+            return table[i] + (table[i + 1] - table[i]) * (t - i);
+        }
+        int segment = findSegment(input);
+        return slopes[segment] * input + intercepts[segment];
+    }
+
+    /** index of the segment containing the input, which must be within the domain */
+    private int findSegment(double input) {
+        int segments = xVals.length - 1;
+        if (segments <= LINEAR_SEARCH_MAX) {
+            int i = 0;
+            while (i < segments - 1 && input >= xVals[i + 1]) {
+                i++;
+            }
+            return i;
+        }
+        // find the last point at or below the input
+        int low = 0;
+        int high = segments - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xVals[mid] <= input) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
         }
-        return GRTUtil.transformation(xVals[upperBoundIndex-1], xVals[upperBoundIndex],
-                yVals[upperBoundIndex-1], yVals[upperBoundIndex], input);
+        return low;
     }
-}
\ No newline at end of file
+}
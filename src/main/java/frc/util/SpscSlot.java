@@ -0,0 +1,65 @@
+package frc.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands the latest value of a mutable object from one producer thread to one
+ * consumer thread, without locks or allocation. There are three copies of the
+ * object: the producer fills one, the consumer reads one, and the third holds
+ * the latest published value. Publishing and receiving swap a copy with the
+ * third, so neither thread ever waits for the other or sees a half written
+ * value. Values published faster than they are received are skipped.
+ */
+public class SpscSlot<T> {
+	/** flag in {@link #middle} set when it holds a value the consumer hasn't received */
+	private static final int FRESH = 4;
+
+	private final Object[] buffers = new Object[3];
+	/** index of the copy between the producer and consumer, or'd with FRESH */
+	private final AtomicInteger middle = new AtomicInteger(1);
+	/** the copy the producer is filling (producer thread only) */
+	private int back = 0;
+	/** the copy the consumer is reading (consumer thread only) */
+	private int front = 2;
+
+	/** @param factory creates each of the three copies */
+	public SpscSlot(Supplier<T> factory) {
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = factory.get();
+		}
+	}
+
+	/**
+	 * Get the copy to fill with the next value (producer thread only). It holds
+	 * an old value, so every field should be written before {@link #publish()}
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) buffers[back];
+	}
+
+	/** publish the write buffer as the latest value (producer thread only) */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & ~FRESH;
+	}
+
+	/**
+	 * Receive the latest published value if there is one that hasn't been
+	 * received yet (consumer thread only)
+	 * @return whether {@link #getReadBuffer()} now holds a new value
+	 */
+	public boolean receive() {
+		if ((middle.get() & FRESH) == 0) {
+			return false;
+		}
+		front = middle.getAndSet(front) & ~FRESH;
+		return true;
+	}
+
+	/** get the last received value (consumer thread only) */
+	@SuppressWarnings("unchecked")
+	public T getReadBuffer() {
+		return (T) buffers[front];
+	}
+}
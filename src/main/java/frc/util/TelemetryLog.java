@@ -0,0 +1,325 @@
+package frc.util;
+
+import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records rows of numbers from a control loop to a file, without allocating
+ * or touching the filesystem on the loop's thread. Each row is a timestamp
+ * and a fixed set of columns, stored as floats.
+ * <p>
+ * The loop writes rows into a preallocated off-heap ring buffer (see
+ * {@link #startRow(long)}). A background thread drains the ring about once a
+ * second into blocks of the file, which it writes through memory mapped
+ * regions. Within a block each column is stored contiguously, so the file is
+ * compact and a single signal can be read without reading every row. Rows
+ * that arrive while the ring is full are dropped and counted. Only whole
+ * blocks are written while logging; a partly filled block is written by
+ * {@link #flush()} (e.g. when the robot is disabled) and {@link #close()}.
+ * The file is never grown past the size it is given.
+ * </p>
+ * <p>
+ * File format, big endian: int magic "GRTT", int version, int column count,
+ * int rows per block, the column names as modified UTF-8 strings, then blocks
+ * until the end of the file. Each block is int row count, int 0, then
+ * rows-per-block long timestamps (Clock.nanoTime()), then rows-per-block
+ * floats for each column in order. Only the first row count entries of each
+ * array are used. A block with a row count of 0 ends the file (e.g. if the
+ * robot lost power while writing). {@link TelemetryReader} converts files to
+ * CSV.
+ * </p>
+ */
+public class TelemetryLog {
+	static final int MAGIC = 0x47525454; // "GRTT"
+	static final int VERSION = 1;
+	/** rows in each block of the file */
+	static final int BLOCK_ROWS = 200;
+	/** rows the ring buffer holds, several seconds at the module loop rate */
+	private static final int RING_ROWS = 4096;
+	/** blocks mapped into memory at once */
+	private static final int BLOCKS_PER_MAP = 64;
+	/** how often the ring is drained to the file, in nanoseconds */
+	private static final long DRAIN_NANOS = 1_000_000_000L;
+
+	private final String[] columns;
+	/** bytes per row in the ring: a long timestamp then a float per column */
+	private final int rowSize;
+	private final int blockSize;
+	private final ByteBuffer ring;
+
+	/** rows finished by the producer */
+	private volatile long head;
+	/** rows drained to the file */
+	private volatile long tail;
+	/** offset in the ring of the row being written, or -1 if it is being dropped */
+	private int rowOffset = -1;
+	private volatile long dropped;
+
+	private final File file;
+	private final FileChannel channel;
+	private final int headerSize;
+	/** the file isn't grown past this size, in bytes */
+	private final long maxFileSize;
+	private MappedByteBuffer map;
+	/** file position of the first block in map */
+	private long mapPosition;
+	/** number of blocks written into map, and the number it holds */
+	private int mapBlocks;
+	private int mapCapacity;
+	private volatile boolean running = true;
+	/** set by flush() to have the writer write every finished row now */
+	private volatile boolean flushRequested;
+	private final Thread writer;
+
+	/**
+	 * Create a log and start the thread that writes it.
+	 * @param file the file to write. It is replaced if it exists
+	 * @param columns the names of the columns of each row
+	 * @param maxFileSize the most bytes the file may use
+	 */
+	public TelemetryLog(File file, String[] columns, long maxFileSize) throws IOException {
+		this.file = file;
+		this.columns = columns.clone();
+		this.maxFileSize = maxFileSize;
+		rowSize = 8 + 4 * columns.length;
+		blockSize = 8 + 8 * BLOCK_ROWS + 4 * columns.length * BLOCK_ROWS;
+		ring = ByteBuffer.allocateDirect(RING_ROWS * rowSize);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream header = new DataOutputStream(bytes)) {
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeInt(columns.length);
+			header.writeInt(BLOCK_ROWS);
+			for (String column : columns) {
+				header.writeUTF(column);
+			}
+		}
+		headerSize = bytes.size();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		channel.write(ByteBuffer.wrap(bytes.toByteArray()), 0);
+		mapPosition = headerSize;
+
+		writer = new Thread(this::run, "telemetry-writer");
+		writer.setDaemon(true);
+		writer.setPriority(Thread.MIN_PRIORITY);
+		writer.start();
+	}
+
+	/**
+	 * Start a new log in the directory, named &lt;prefix&gt;_&lt;number&gt;.bin
+	 * with the number one past the newest log. Every log with the prefix shares
+	 * the budget: the oldest logs are deleted until the rest use at most half of
+	 * it, and the new log may use what is left.
+	 * @param budget the most bytes all the logs may use together
+	 */
+	public static TelemetryLog create(File directory, String prefix, long budget, String[] columns)
+			throws IOException {
+		Pattern pattern = Pattern.compile(Pattern.quote(prefix) + "_(\\d+)\\.bin");
+		File[] files = directory.listFiles();
+		if (files == null) {
+			files = new File[0];
+		}
+		long[] numbers = new long[files.length];
+		int count = 0;
+		for (File f : files) {
+			Matcher m = pattern.matcher(f.getName());
+			if (m.matches()) {
+				numbers[count++] = Long.parseLong(m.group(1));
+			}
+		}
+		Arrays.sort(numbers, 0, count);
+		long used = 0;
+		for (int i = 0; i < count; i++) {
+			used += logFile(directory, prefix, numbers[i]).length();
+		}
+		for (int i = 0; i < count && used > budget / 2; i++) {
+			File old = logFile(directory, prefix, numbers[i]);
+			long size = old.length();
+			if (old.delete()) {
+				used -= size;
+			}
+		}
+		long next = count == 0 ? 0 : numbers[count - 1] + 1;
+		return new TelemetryLog(logFile(directory, prefix, next), columns, budget - used);
+	}
+
+	private static File logFile(File directory, String prefix, long number) {
+		return new File(directory, String.format("%s_%04d.bin", prefix, number));
+	}
+
+	/** get the file being written */
+	public File getFile() {
+		return file;
+	}
+
+	/** get the number of columns in each row */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/** get the number of rows dropped because the ring buffer was full */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Start a row. Set its columns with {@link #set(int, double)}, then call
+	 * {@link #finishRow()}. Columns that aren't set keep a value from an older
+	 * row. Only one thread may write rows.
+	 * @param timestamp the time of the row (Clock.nanoTime())
+	 * @return false if the row is being dropped because the ring is full
+	 */
+	public boolean startRow(long timestamp) {
+		long row = head;
+		if (row - tail >= RING_ROWS || !running) {
+			rowOffset = -1;
+			dropped++;
+			return false;
+		}
+		rowOffset = (int) (row % RING_ROWS) * rowSize;
+		ring.putLong(rowOffset, timestamp);
+		return true;
+	}
+
+	/** set a column of the current row */
+	public void set(int column, double value) {
+		if (rowOffset >= 0) {
+			ring.putFloat(rowOffset + 8 + 4 * column, (float) value);
+		}
+	}
+
+	/** set a column of the current row to 1 (true) or 0 (false) */
+	public void set(int column, boolean value) {
+		set(column, value ? 1 : 0);
+	}
+
+	/** finish the current row, handing it to the writer thread */
+	public void finishRow() {
+		if (rowOffset >= 0) {
+			rowOffset = -1;
+			head = head + 1;
+		}
+	}
+
+	/**
+	 * Have the writer thread write every finished row soon, including the rows
+	 * that don't fill a block. Returns without waiting for the write
+	 */
+	public void flush() {
+		flushRequested = true;
+		LockSupport.unpark(writer);
+	}
+
+	/** write the rows that are left and close the file */
+	public void close() {
+		running = false;
+		// not interrupt(), which would close the channel if the writer is using it
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				long deadline = System.nanoTime() + DRAIN_NANOS;
+				long remaining;
+				while (running && !flushRequested && (remaining = deadline - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(remaining);
+				}
+				// when closing, write what's left
+				boolean partial = flushRequested || !running;
+				flushRequested = false;
+				if (!drain(partial)) {
+					System.out.println("telemetry log " + file + " is full, no longer logging");
+					running = false;
+				}
+			}
+			// end the file where the data ends
+			channel.truncate(mapPosition + (long) mapBlocks * blockSize);
+		} catch (IOException e) {
+			System.out.println("unable to write telemetry log " + file + ": " + e.getMessage());
+			running = false;
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * write the finished rows to the file, a block at a time
+	 * @param partial whether to also write the rows that don't fill a block
+	 * @return false if the file has reached its maximum size
+	 */
+	private boolean drain(boolean partial) throws IOException {
+		long end = head;
+		boolean wrote = false;
+		while (end - tail >= BLOCK_ROWS || (partial && tail < end)) {
+			if (map == null || mapBlocks == mapCapacity) {
+				if (!nextMap()) {
+					return false;
+				}
+			}
+			int rows = (int) Math.min(end - tail, BLOCK_ROWS);
+			writeBlock(mapBlocks * blockSize, rows);
+			mapBlocks++;
+			tail = tail + rows;
+			wrote = true;
+		}
+		if (wrote) {
+			map.force();
+		}
+		return true;
+	}
+
+	/** map the region after the current one */
+	private boolean nextMap() throws IOException {
+		if (map != null) {
+			map.force();
+			mapPosition += (long) mapBlocks * blockSize;
+		}
+		long blocks = Math.min(BLOCKS_PER_MAP, (maxFileSize - mapPosition) / blockSize);
+		if (blocks <= 0) {
+			map = null;
+			mapBlocks = 0;
+			return false;
+		}
+		mapCapacity = (int) blocks;
+		map = channel.map(FileChannel.MapMode.READ_WRITE, mapPosition, (long) mapCapacity * blockSize);
+		mapBlocks = 0;
+		return true;
+	}
+
+	/** copy rows from the ring into a block starting at the given offset in map, transposed into columns */
+	private void writeBlock(int at, int rows) {
+		int times = at + 8;
+		int values = times + 8 * BLOCK_ROWS;
+		for (int r = 0; r < rows; r++) {
+			int row = (int) ((tail + r) % RING_ROWS) * rowSize;
+			map.putLong(times + 8 * r, ring.getLong(row));
+			for (int c = 0; c < columns.length; c++) {
+				map.putFloat(values + 4 * (c * BLOCK_ROWS + r), ring.getFloat(row + 8 + 4 * c));
+			}
+		}
+		// the row count goes in last, so a block is only read once it's complete
+		map.putInt(at + 4, 0);
+		map.putInt(at, rows);
+	}
+}
@@ -0,0 +1,96 @@
+package frc.util;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads files written by {@link TelemetryLog}. Run off the robot to convert a
+ * log to CSV: TelemetryReader &lt;log file&gt; &lt;csv file&gt;
+ */
+public class TelemetryReader {
+	private final String[] columns;
+	private final int blockRows;
+	private final ByteBuffer data;
+	/** offset of the first block */
+	private final int start;
+	private final int blockSize;
+
+	public TelemetryReader(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		byte[] header = new byte[Math.min(data.capacity(), 1 << 16)];
+		data.duplicate().get(header);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+		if (in.readInt() != TelemetryLog.MAGIC) {
+			throw new IOException(file + " is not a telemetry log");
+		}
+		int version = in.readInt();
+		if (version != TelemetryLog.VERSION) {
+			throw new IOException(file + " is telemetry log version " + version + ", expected "
+					+ TelemetryLog.VERSION);
+		}
+		columns = new String[in.readInt()];
+		blockRows = in.readInt();
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = in.readUTF();
+		}
+		start = header.length - in.available();
+		blockSize = 8 + 8 * blockRows + 4 * columns.length * blockRows;
+	}
+
+	/** get the names of the columns */
+	public String[] getColumns() {
+		return columns.clone();
+	}
+
+	/** write every row as CSV, with a header row. Times are in seconds */
+	public void writeCsv(Writer out) throws IOException {
+		out.write("time");
+		for (String column : columns) {
+			out.write(',');
+			out.write(column);
+		}
+		out.write('\n');
+		StringBuilder line = new StringBuilder();
+		for (long at = start; at + blockSize <= data.capacity(); at += blockSize) {
+			int block = (int) at;
+			int rows = data.getInt(block);
+			if (rows <= 0) {
+				// the writer stopped part way through the file
+				break;
+			}
+			int times = block + 8;
+			int values = times + 8 * blockRows;
+			for (int r = 0; r < rows; r++) {
+				line.setLength(0);
+				line.append(data.getLong(times + 8 * r) / 1e9);
+				for (int c = 0; c < columns.length; c++) {
+					line.append(',').append(data.getFloat(values + 4 * (c * blockRows + r)));
+				}
+				line.append('\n');
+				out.write(line.toString());
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("usage: TelemetryReader <log file> <csv file>");
+			return;
+		}
+		TelemetryReader reader = new TelemetryReader(new File(args[0]));
+		try (BufferedWriter out = Files.newBufferedWriter(new File(args[1]).toPath(), StandardCharsets.UTF_8)) {
+			reader.writeCsv(out);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package frc.gen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import frc.util.Benchmark;
+
+/**
+ * Compares writing and reading a double through BIGData channels with the
+ * string HashMap BIGData used before them, which formatted the value on every
+ * put and parsed it on every get.
+ */
+public class ChannelBenchmark {
+	private static final int ITERATIONS = 10_000_000;
+
+	public static void main(String[] args) {
+		// the old path: put formats the value, get checks the key and parses it
+		Map<String, String> map = new HashMap<String, String>();
+		map.put("requested_vx", "0.0");
+		Benchmark.run("HashMap put + parse get", ITERATIONS, i -> {
+			map.put("requested_vx", "" + (i * 0.001));
+			if (!map.containsKey("requested_vx")) {
+				map.put("requested_vx", "0.0");
+			}
+			return Double.parseDouble(map.get("requested_vx"));
+		});
+
+		DoubleChannel channel = BIGData.doubleChannel("benchmark_channel");
+		Benchmark.run("channel set + get", ITERATIONS, i -> {
+			channel.set(i * 0.001);
+			return channel.get();
+		});
+
+		// the string api still works, but looks the channel up by key
+		Benchmark.run("BIGData.put + getDouble (channel key)", ITERATIONS, i -> {
+			BIGData.put("benchmark_channel", i * 0.001);
+			return BIGData.getDouble("benchmark_channel");
+		});
+	}
+}
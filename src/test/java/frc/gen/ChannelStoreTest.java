@@ -0,0 +1,91 @@
+package frc.gen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for registering, seeding and looking up channels. Channels are global,
+ * so every test uses its own keys.
+ */
+public class ChannelStoreTest {
+
+	@Test
+	public void sameKeyGivesSameChannel() {
+		DoubleChannel a = ChannelStore.doubleChannel("store_test_same");
+		assertSame(a, ChannelStore.doubleChannel("store_test_same"));
+		assertSame(a, ChannelStore.lookup("store_test_same"));
+	}
+
+	@Test
+	public void unknownKeyIsNotFound() {
+		assertNull(ChannelStore.lookup("store_test_never_registered"));
+	}
+
+	@Test
+	public void channelsDoNotShareSlots() {
+		DoubleChannel a = ChannelStore.doubleChannel("store_test_slot_a");
+		DoubleChannel b = ChannelStore.doubleChannel("store_test_slot_b");
+		a.set(1.5);
+		b.set(-2.5);
+		assertEquals(1.5, a.get(), 0);
+		assertEquals(-2.5, b.get(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void keyKeepsItsType() {
+		ChannelStore.doubleChannel("store_test_type");
+		ChannelStore.booleanChannel("store_test_type");
+	}
+
+	@Test
+	public void adoptSeedsRegisteredChannels() {
+		DoubleChannel d = ChannelStore.doubleChannel("store_test_seed_double");
+		LongChannel l = ChannelStore.longChannel("store_test_seed_long");
+		BooleanChannel b = ChannelStore.booleanChannel("store_test_seed_boolean");
+		Map<String, String> map = new HashMap<String, String>();
+		map.put("store_test_seed_double", "0.25");
+		map.put("store_test_seed_long", "42");
+		map.put("store_test_seed_boolean", "true");
+		map.put("store_test_seed_other", "x");
+		ChannelStore.adopt(map);
+
+		assertEquals(0.25, d.get(), 0);
+		assertEquals(42, l.get());
+		assertTrue(b.get());
+		// the channels own their values now, the rest stay in the map
+		assertFalse(map.containsKey("store_test_seed_double"));
+		assertFalse(map.containsKey("store_test_seed_long"));
+		assertFalse(map.containsKey("store_test_seed_boolean"));
+		assertEquals("x", map.get("store_test_seed_other"));
+	}
+
+	@Test
+	public void channelsRegisteredLaterAreSeeded() {
+		Map<String, String> map = new HashMap<String, String>();
+		map.put("store_test_late", "3.5");
+		map.put("store_test_late_invalid", "not a number");
+		ChannelStore.adopt(map);
+
+		assertEquals(3.5, ChannelStore.doubleChannel("store_test_late").get(), 0);
+		assertEquals(0, ChannelStore.doubleChannel("store_test_late_invalid").get(), 0);
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void stringApiGoesThroughChannels() {
+		DoubleChannel d = BIGData.doubleChannel("store_test_string_api");
+		BIGData.put("store_test_string_api", "1.25");
+		assertEquals(1.25, d.get(), 0);
+		BIGData.put("store_test_string_api", 2.5);
+		assertEquals(2.5, BIGData.getDouble("store_test_string_api"), 0);
+		assertEquals("2.5", BIGData.getString("store_test_string_api"));
+	}
+}
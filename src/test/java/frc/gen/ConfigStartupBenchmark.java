@@ -0,0 +1,77 @@
+package frc.gen;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+import frc.util.Benchmark;
+
+/**
+ * Compares the ways of loading a config file at startup: the Scanner loop
+ * Config used before ConfigParser, and ConfigParser.
+ * Only parsing is timed, not the schema, since not every config file in the
+ * deploy directory has the keys the schema requires. The first call of each
+ * is printed too, since startup runs them only once.
+ * <p>
+ * usage: ConfigStartupBenchmark [deploy directory]
+ * </p>
+ */
+public class ConfigStartupBenchmark {
+	private static final String[] FILES = { "diffswerve.txt", "omega2020.txt" };
+	private static final int ITERATIONS = 20_000;
+
+	public static void main(String[] args) throws IOException {
+		File directory = new File(args.length > 0 ? args[0] : "src/main/deploy");
+		for (String name : FILES) {
+			File file = new File(directory, name);
+			Map<String, String> parsed = new HashMap<String, String>();
+			ConfigParser.parse(file, parsed);
+			System.out.println(name + ": " + parsed.size() + " entries");
+
+			Benchmark.Op scanner = i -> {
+				Map<String, String> map = new HashMap<String, String>();
+				scannerLoad(file, map);
+				return map.size();
+			};
+			Benchmark.Op parser = i -> {
+				Map<String, String> map = new HashMap<String, String>();
+				try {
+					ConfigParser.parse(file, map);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+				return map.size();
+			};
+			firstCall("Scanner loop", scanner);
+			firstCall("ConfigParser", parser);
+			Benchmark.run("  Scanner loop", ITERATIONS, scanner);
+			Benchmark.run("  ConfigParser", ITERATIONS, parser);
+		}
+	}
+
+	/** time a single call, before the JIT has compiled anything */
+	private static void firstCall(String name, Benchmark.Op op) {
+		long start = System.nanoTime();
+		op.run(0);
+		System.out.printf("  %-38s %10.1f us first call%n", name, (System.nanoTime() - start) / 1e3);
+	}
+
+	/** how Config loaded files before ConfigParser */
+	private static void scannerLoad(File f, Map<String, String> map) {
+		try (Scanner in = new Scanner(f)) {
+			while (in.hasNextLine()) {
+				String line = in.nextLine().trim();
+				if (line.length() > 0 && line.charAt(0) != '#') {
+					String[] splitted = line.split("=", 2);
+					if (splitted.length == 2)
+						map.put(splitted[0].trim(), splitted[1].trim());
+				}
+			}
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
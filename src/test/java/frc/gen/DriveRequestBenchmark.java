@@ -0,0 +1,64 @@
+package frc.gen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import frc.util.Benchmark;
+
+/**
+ * Measures drive request throughput with several threads publishing and
+ * reading requests at once: the sequence locked requestDrive/getDriveCommand
+ * against the three string HashMap puts and gets BIGData used before. The old
+ * path isn't safe to share between threads (a reader can see vx from one
+ * request and w from another), it is only here for its cost.
+ * <p>
+ * usage: DriveRequestBenchmark [writers] [readers] [seconds]
+ * </p>
+ */
+public class DriveRequestBenchmark {
+	public static void main(String[] args) throws InterruptedException {
+		int writers = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		int readers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 2;
+
+		// the old path: put formats each value, get checks the key and parses it
+		Map<String, String> map = new HashMap<String, String>();
+		map.put("requested_vx", "0.0");
+		map.put("requested_vy", "0.0");
+		map.put("requested_w", "0.0");
+		Benchmark.runConcurrent("HashMap puts + gets", seconds, writers, i -> {
+			map.put("requested_vx", "" + (i * 0.001));
+			map.put("requested_vy", "" + (i * 0.002));
+			map.put("requested_w", "" + (i * 0.003));
+			return 0;
+		}, readers, i -> getDouble(map, "requested_vx") + getDouble(map, "requested_vy")
+				+ getDouble(map, "requested_w"));
+
+		Benchmark.runConcurrent("requestDrive + getDriveCommand", seconds, writers, i -> {
+			BIGData.requestDrive(i * 0.001, i * 0.002, i * 0.003);
+			return 0;
+		}, readers, new Benchmark.Op() {
+			/** each reader thread gets its own, like each control loop */
+			private final ThreadLocal<DriveCommand> command = ThreadLocal.withInitial(DriveCommand::new);
+
+			@Override
+			public double run(int i) {
+				DriveCommand c = command.get();
+				BIGData.getDriveCommand(c);
+				return c.getVX() + c.getVY() + c.getW();
+			}
+		});
+	}
+
+	/** how BIGData.getDouble read a value before channels */
+	private static double getDouble(Map<String, String> map, String key) {
+		if (!map.containsKey(key)) {
+			map.put(key, "0.0");
+		}
+		try {
+			return Double.parseDouble(map.get(key));
+		} catch (Exception e) {
+			return 0.0;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package frc.gen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Hammers a sequence lock and the drive request from several threads at once
+ * and checks that a reader never sees values from two different writes.
+ */
+public class SeqLockTest {
+	private static final int WRITERS = 2;
+	private static final int READERS = 4;
+	/** how long each test hammers the values, in milliseconds */
+	private static final long DURATION = 1000;
+
+	@Test
+	public void channelsAreNeverTorn() throws InterruptedException {
+		SeqLock lock = new SeqLock();
+		DoubleChannel x = ChannelStore.doubleChannel("seqlock_test_x");
+		DoubleChannel y = ChannelStore.doubleChannel("seqlock_test_y");
+		DoubleChannel w = ChannelStore.doubleChannel("seqlock_test_w");
+		AtomicLong reads = new AtomicLong();
+		hammer(n -> {
+			lock.beginWrite();
+			x.set(n);
+			y.set(2 * n);
+			w.set(3 * n);
+			lock.endWrite();
+		}, () -> {
+			double vx, vy, vw;
+			long seq;
+			do {
+				seq = lock.beginRead();
+				vx = x.get();
+				vy = y.get();
+				vw = w.get();
+			} while (!lock.validate(seq));
+			assertTriple(vx, vy, vw);
+			reads.incrementAndGet();
+		});
+		assertTrue(reads.get() > 0);
+	}
+
+	@Test
+	public void driveCommandIsNeverTorn() throws InterruptedException {
+		hammer(n -> BIGData.requestDrive(n, 2 * n, 3 * n), () -> {
+			// each reader copies into its own command, like each loop does
+			DriveCommand command = new DriveCommand();
+			BIGData.getDriveCommand(command);
+			assertTriple(command.getVX(), command.getVY(), command.getW());
+		});
+		DriveCommand command = new DriveCommand();
+		BIGData.getDriveCommand(command);
+		assertTrue(command.getSequence() > 0);
+	}
+
+	@Test
+	public void writesAreCounted() {
+		SeqLock lock = new SeqLock();
+		for (long i = 0; i < 10; i++) {
+			assertEquals(i, lock.beginWrite());
+			lock.endWrite();
+		}
+		long seq = lock.beginRead();
+		assertTrue(lock.validate(seq));
+		lock.beginWrite();
+		lock.endWrite();
+		assertTrue(!lock.validate(seq));
+	}
+
+	/** the values written together are n, 2n and 3n */
+	private static void assertTriple(double vx, double vy, double w) {
+		if (vy != 2 * vx || w != 3 * vx) {
+			throw new AssertionError("torn read: " + vx + ", " + vy + ", " + w);
+		}
+	}
+
+	private interface Writer {
+		void write(long n);
+	}
+
+	/**
+	 * Run the writer and reader on several threads each for DURATION, and rethrow
+	 * the first failure from any of them
+	 */
+	private static void hammer(Writer writer, Runnable reader) throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < WRITERS; i++) {
+			long first = i;
+			threads.add(new Thread(() -> {
+				// writers write different values so their writes can be told apart
+				for (long n = first; running.get(); n += WRITERS) {
+					writer.write(n);
+				}
+			}));
+		}
+		for (int i = 0; i < READERS; i++) {
+			threads.add(new Thread(() -> {
+				try {
+					while (running.get()) {
+						reader.run();
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+					running.set(false);
+				}
+			}));
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		Thread.sleep(DURATION);
+		running.set(false);
+		for (Thread t : threads) {
+			t.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+}
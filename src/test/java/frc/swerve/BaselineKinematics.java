@@ -0,0 +1,37 @@
+package frc.swerve;
+
+/**
+ * The module math Swerve.changeModules used before {@link SwerveKinematics}
+ * (without its rotation scale): each module's rotation term is found from its
+ * distance and angle to the center with trig every call. Kept to check and
+ * benchmark SwerveKinematics against.
+ */
+class BaselineKinematics {
+	private final double[] xPos;
+	private final double[] yPos;
+	final double[] angles;
+	final double[] speeds;
+
+	BaselineKinematics(double[] xPos, double[] yPos) {
+		this.xPos = xPos;
+		this.yPos = yPos;
+		angles = new double[xPos.length];
+		speeds = new double[xPos.length];
+	}
+
+	void update(double vx, double vy, double w, double gyroAngle) {
+		for (int i = 0; i < xPos.length; i++) {
+			double wheelRadius = Math.sqrt(Math.pow(xPos[i], 2) + Math.pow(yPos[i], 2));
+			// angle between the module, the center of the robot, and the x axis
+			double wheelAngle = Math.atan2(yPos[i], xPos[i]) - gyroAngle;
+			// x component of tangential velocity
+			double wx = (w * wheelRadius) * Math.cos(Math.PI / 2 + wheelAngle);
+			// y component of tangential velocity
+			double wy = (w * wheelRadius) * Math.sin(Math.PI / 2 + wheelAngle);
+			double wheelVX = vx + wx;
+			double wheelVY = vy + wy;
+			angles[i] = Math.atan2(wheelVY, wheelVX) + gyroAngle - Math.PI / 2;
+			speeds[i] = Math.sqrt(wheelVX * wheelVX + wheelVY * wheelVY);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package frc.swerve;
+
+import frc.util.Benchmark;
+
+/**
+ * Compares SwerveKinematics with the per-module trig loop it replaced, for 4
+ * modules driving field centric
+ */
+public class SwerveKinematicsBenchmark {
+	private static final int ITERATIONS = 10_000_000;
+
+	public static void main(String[] args) {
+		double[] xPos = { 0.3, 0.3, -0.3, -0.3 };
+		double[] yPos = { 0.25, -0.25, -0.25, 0.25 };
+
+		BaselineKinematics baseline = new BaselineKinematics(xPos, yPos);
+		Benchmark.run("per-module trig loop", ITERATIONS, i -> {
+			baseline.update(0.5, 0.7, 0.3, i * 1e-4);
+			return baseline.angles[3] + baseline.speeds[3];
+		});
+
+		SwerveKinematics kinematics = new SwerveKinematics(xPos, yPos);
+		Benchmark.run("SwerveKinematics", ITERATIONS, i -> {
+			kinematics.update(0.5, 0.7, 0.3, i * 1e-4);
+			return kinematics.getAngle(3) + kinematics.getSpeed(3);
+		});
+	}
+}
@@ -0,0 +1,50 @@
+package frc.swerve;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/** Checks SwerveKinematics against the module math it replaced */
+public class SwerveKinematicsTest {
+	private static final double[] X_POS = { 0.3, 0.3, -0.3, -0.3 };
+	private static final double[] Y_POS = { 0.25, -0.25, -0.25, 0.25 };
+	private static final double[] GYRO_DEGREES = { 0, 30, 90, 180, -135, 271, 720 };
+	/** chassis velocities to try, as { vx, vy, w } */
+	private static final double[][] VELOCITIES = { { 0, 1, 0 }, { 1, 0, 0 }, { 0.6, -0.8, 0 }, { 0, 0, 1 },
+			{ 0, 0, -2.5 }, { 0.5, 0.5, 1 }, { -0.3, 0.9, -0.7 } };
+	private static final double TOLERANCE = 1e-9;
+
+	@Test
+	public void matchesBaselineMath() {
+		SwerveKinematics kinematics = new SwerveKinematics(X_POS, Y_POS);
+		BaselineKinematics baseline = new BaselineKinematics(X_POS, Y_POS);
+		for (double degrees : GYRO_DEGREES) {
+			double gyroAngle = Math.toRadians(degrees);
+			for (double[] v : VELOCITIES) {
+				kinematics.update(v[0], v[1], v[2], gyroAngle);
+				baseline.update(v[0], v[1], v[2], gyroAngle);
+				for (int i = 0; i < X_POS.length; i++) {
+					String at = "module " + i + ", gyro " + degrees + ", v " + v[0] + " " + v[1] + " " + v[2];
+					assertEquals(at, baseline.speeds[i], kinematics.getSpeed(i), TOLERANCE);
+					// the azimuths may differ by whole turns
+					double error = Math.IEEEremainder(kinematics.getAngle(i) - baseline.angles[i], 2 * Math.PI);
+					assertEquals(at, 0, error, TOLERANCE);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void rotationTurnsWheelsTangent() {
+		SwerveKinematics kinematics = new SwerveKinematics(X_POS, Y_POS);
+		kinematics.update(0, 0, 1, 0);
+		for (int i = 0; i < X_POS.length; i++) {
+			double radius = Math.hypot(X_POS[i], Y_POS[i]);
+			assertEquals(radius, kinematics.getSpeed(i), TOLERANCE);
+			// the wheel points along its azimuth, where 0 is forward (along y)
+			double dirX = Math.cos(kinematics.getAngle(i) + Math.PI / 2);
+			double dirY = Math.sin(kinematics.getAngle(i) + Math.PI / 2);
+			assertEquals(0, dirX * X_POS[i] + dirY * Y_POS[i], TOLERANCE);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package frc.util;
+
+/**
+ * PiecewiseLinearFunction as it was before it was rewritten, kept to check and
+ * benchmark the rewrite against. It prints every call, and returns -100 for
+ * inputs outside of its domain.
+ */
+class BaselinePiecewiseLinearFunction {
+    // x and y values of the points that define this piecewise function
+    private double[] xVals;
+    private double[] yVals;
+
+    BaselinePiecewiseLinearFunction(double[] xVals, double[] yVals) {
+        this.xVals = xVals.clone();
+        this.yVals = yVals.clone();
+    }
+
+    double apply(double input) {
+        System.out.print("input:" + input + ",output:");
+        // index of the point higher than the 
+        int upperBoundIndex = 0;
+        // for our purposes, the array isn't going to be long so no binary search
+        while (upperBoundIndex < xVals.length && xVals[upperBoundIndex] <= input) {
+            if (upperBoundIndex == xVals.length - 1 && 
+                xVals[upperBoundIndex] == input) { // deal with upper edge case
+                break;
+            }
+            upperBoundIndex++;
+        }
+        // if the input is outside the domain of our function
+        if (upperBoundIndex == 0 || upperBoundIndex == xVals.length) {
+            return -100;
+        }
+        return GRTUtil.transformation(xVals[upperBoundIndex-1], xVals[upperBoundIndex],
+                yVals[upperBoundIndex-1], yVals[upperBoundIndex], input);
+    }
+}
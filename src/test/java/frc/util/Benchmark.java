@@ -0,0 +1,144 @@
+package frc.util;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small harness for the main()-based benchmarks in the test sources: warms
+ * an operation up, then times it and measures how much it allocates on the
+ * calling thread. Run a benchmark's main() from the test classpath.
+ */
+public final class Benchmark {
+	/** the operation to measure */
+	public interface Op {
+		/**
+		 * run the operation once
+		 * @param i the iteration, to vary the inputs
+		 * @return a result, which is consumed so the work can't be optimized away
+		 */
+		double run(int i);
+	}
+
+	/** rounds measured after one round of warmup */
+	private static final int ROUNDS = 5;
+
+	/** keeps the results of the operations alive */
+	private static volatile double sink;
+
+	private Benchmark() {
+	}
+
+	/**
+	 * Measure the operation and print its time and allocation per operation, the
+	 * best of a few rounds
+	 * @param name printed with the results
+	 * @param iterations operations per round
+	 */
+	public static void run(String name, int iterations, Op op) {
+		print(name, measure(op, iterations));
+	}
+
+	/**
+	 * Like {@link #run(String, int, Op)}, but anything the operation prints to
+	 * System.out is discarded while it is measured
+	 */
+	public static void runQuietly(String name, int iterations, Op op) {
+		PrintStream out = System.out;
+		double[] result;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			result = measure(op, iterations);
+		} finally {
+			System.setOut(out);
+		}
+		print(name, result);
+	}
+
+	/**
+	 * Run writer and reader operations on their own threads at the same time for
+	 * a while, and print how many of each ran per second. The first half second
+	 * is warmup and isn't counted
+	 * @param seconds how long to measure
+	 */
+	public static void runConcurrent(String name, double seconds, int writers, Op writer, int readers, Op reader)
+			throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicBoolean counting = new AtomicBoolean(false);
+		LongAdder writes = new LongAdder();
+		LongAdder reads = new LongAdder();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < writers + readers; t++) {
+			Op op = t < writers ? writer : reader;
+			LongAdder count = t < writers ? writes : reads;
+			threads.add(new Thread(() -> {
+				double total = 0;
+				int i = 0;
+				while (running.get()) {
+					total += op.run(i++);
+					if (counting.get()) {
+						count.increment();
+					}
+				}
+				sink = total;
+			}));
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		Thread.sleep(500);
+		counting.set(true);
+		long start = System.nanoTime();
+		Thread.sleep((long) (seconds * 1000));
+		counting.set(false);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		running.set(false);
+		for (Thread t : threads) {
+			t.join();
+		}
+		System.out.printf("%-40s %5.1f M writes/s %7.1f M reads/s (%d writers, %d readers)%n", name,
+				writes.sum() / elapsed / 1e6, reads.sum() / elapsed / 1e6, writers, readers);
+	}
+
+	/** @return the best ns/op and bytes/op */
+	private static double[] measure(Op op, int iterations) {
+		run(op, iterations);
+		double bestNanos = Double.MAX_VALUE;
+		double bestBytes = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long bytes = allocatedBytes();
+			long start = System.nanoTime();
+			run(op, iterations);
+			long nanos = System.nanoTime() - start;
+			bytes = allocatedBytes() - bytes;
+			bestNanos = Math.min(bestNanos, (double) nanos / iterations);
+			bestBytes = Math.min(bestBytes, (double) bytes / iterations);
+		}
+		return new double[] { bestNanos, bestBytes };
+	}
+
+	private static void print(String name, double[] result) {
+		System.out.printf("%-40s %10.1f ns/op %10.1f bytes/op%n", name, result[0], result[1]);
+	}
+
+	private static void run(Op op, int iterations) {
+		double total = 0;
+		for (int i = 0; i < iterations; i++) {
+			total += op.run(i);
+		}
+		sink = total;
+	}
+
+	/** get the bytes allocated by this thread so far, or 0 if the JVM can't tell */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,29 @@
+package frc.util;
+
+/**
+ * Compares PiecewiseLinearFunction with the implementation it replaced, on the
+ * default joystick profile and on a 64 point table. What the old
+ * implementation prints is discarded, so the console isn't measured, only
+ * building and writing the string.
+ */
+public class PiecewiseLinearFunctionBenchmark {
+    private static final int ITERATIONS = 5_000_000;
+
+    public static void main(String[] args) {
+        double[][] joystick = { { 0, 0.35, 0.7, 1.0 }, { 0, 0.1, 0.4, 1.0 } };
+        double[][] large = new double[2][64];
+        for (int i = 0; i < 64; i++) {
+            large[0][i] = i / 63.0;
+            large[1][i] = Math.sin(i / 10.0);
+        }
+        for (double[][] points : new double[][][] { joystick, large }) {
+            System.out.println(points[0].length + " points:");
+            BaselinePiecewiseLinearFunction baseline = new BaselinePiecewiseLinearFunction(points[0], points[1]);
+            PiecewiseLinearFunction f = new PiecewiseLinearFunction(points[0], points[1]);
+            PiecewiseLinearFunction table = f.withLookupTable(1024);
+            Benchmark.runQuietly("  old (prints every call)", ITERATIONS, i -> baseline.apply((i & 1023) / 1023.0));
+            Benchmark.run("  PiecewiseLinearFunction", ITERATIONS, i -> f.apply((i & 1023) / 1023.0));
+            Benchmark.run("  with lookup table", ITERATIONS, i -> table.apply((i & 1023) / 1023.0));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package frc.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import frc.util.PiecewiseLinearFunction.Extrapolation;
+
+/** Checks PiecewiseLinearFunction against the implementation it replaced, on random tables */
+public class PiecewiseLinearFunctionTest {
+    private static final int TABLES = 200;
+    private static final int INPUTS_PER_TABLE = 200;
+    private static final double TOLERANCE = 1e-9;
+
+    private PrintStream out;
+
+    /** the old implementation prints every call */
+    @Before
+    public void silenceBaseline() {
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @After
+    public void restoreOut() {
+        System.setOut(out);
+    }
+
+    @Test
+    public void matchesBaselineInsideDomain() {
+        Random random = new Random(2020);
+        for (int t = 0; t < TABLES; t++) {
+            // short tables use the linear search, long ones the binary search
+            int points = 2 + random.nextInt(t % 2 == 0 ? 8 : 60);
+            double[] xVals = new double[points];
+            double[] yVals = new double[points];
+            double x = random.nextDouble() * 10 - 5;
+            for (int i = 0; i < points; i++) {
+                xVals[i] = x;
+                yVals[i] = random.nextDouble() * 20 - 10;
+                x += 0.01 + random.nextDouble();
+            }
+            PiecewiseLinearFunction f = new PiecewiseLinearFunction(xVals, yVals);
+            BaselinePiecewiseLinearFunction baseline = new BaselinePiecewiseLinearFunction(xVals, yVals);
+            double min = xVals[0];
+            double max = xVals[points - 1];
+            for (int i = 0; i < INPUTS_PER_TABLE; i++) {
+                double input = min + (max - min) * random.nextDouble();
+                assertEquals("table " + t + " at " + input, baseline.apply(input), f.apply(input),
+                        TOLERANCE * (1 + Math.abs(baseline.apply(input))));
+            }
+            // every point, including both ends, is on the function
+            for (int i = 0; i < points; i++) {
+                assertEquals(baseline.apply(xVals[i]), f.apply(xVals[i]), TOLERANCE * (1 + Math.abs(yVals[i])));
+                assertEquals(yVals[i], f.apply(xVals[i]), TOLERANCE * (1 + Math.abs(yVals[i])));
+            }
+        }
+    }
+
+    @Test
+    public void extrapolation() {
+        double[] xVals = { 0, 1, 2 };
+        double[] yVals = { 1, 3, 2 };
+        assertEquals(1, new PiecewiseLinearFunction(xVals, yVals).apply(-1), 0);
+        assertEquals(2, new PiecewiseLinearFunction(xVals, yVals).apply(3), 0);
+        assertEquals(-1, new PiecewiseLinearFunction(xVals, yVals, Extrapolation.LINEAR).apply(-1), TOLERANCE);
+        assertEquals(1, new PiecewiseLinearFunction(xVals, yVals, Extrapolation.LINEAR).apply(3), TOLERANCE);
+        assertEquals(0, new PiecewiseLinearFunction(xVals, yVals, Extrapolation.ZERO).apply(2.5), 0);
+    }
+
+    @Test
+    public void lookupTableMatchesAtItsResolution() {
+        double[] xVals = { 0, 0.35, 0.7, 1.0 };
+        double[] yVals = { 0, 0.1, 0.4, 1.0 };
+        PiecewiseLinearFunction f = new PiecewiseLinearFunction(xVals, yVals);
+        // every point falls on a table entry at this resolution
+        PiecewiseLinearFunction table = f.withLookupTable(20);
+        for (int i = 0; i <= 1000; i++) {
+            double input = i / 1000.0;
+            assertEquals(f.apply(input), table.apply(input), TOLERANCE);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedPoints() {
+        new PiecewiseLinearFunction(new double[] { 0, 2, 1 }, new double[] { 0, 1, 2 });
+    }
+}